@@ -0,0 +1,31 @@
+package eu.socialsensor.benchmarks;
+
+
+import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.insert.ParallelInsertionResult;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkType;
+
+
+/**
+ * Loads the dataset with a single writer that commits every K edges, for
+ * every configured K, and reports the throughput and commit latency at every
+ * batch size.
+ *
+ * @see eu.socialsensor.insert.InsertionBase#createGraphInParallel(java.io.File, int, int)
+ */
+public class BatchedInsertionBenchmark extends SweepingInsertionBenchmark {
+
+    public static final String BATCH_SIZES_OUTPUT_FILE_NAME = "BatchedInsertionBatchSizes.csv";
+
+
+    public BatchedInsertionBenchmark( BenchmarkConfiguration config ) {
+        super( config, BenchmarkType.BATCHED_INSERTION, "Batch Size", config.getInsertionBatchSizes(), BATCH_SIZES_OUTPUT_FILE_NAME );
+    }
+
+
+    @Override
+    protected ParallelInsertionResult load( GraphDatabase<?, ?, ?, ?> graphDatabase, int batchSize ) {
+        return graphDatabase.parallelModeLoading( bench.getDataset(), 1 /* threads */, batchSize );
+    }
+}
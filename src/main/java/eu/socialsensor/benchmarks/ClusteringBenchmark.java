@@ -3,6 +3,8 @@ package eu.socialsensor.benchmarks;
 
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.clustering.LouvainMethod;
+import eu.socialsensor.dataset.EdgeArrays;
+import eu.socialsensor.dataset.EdgeListParser;
 import eu.socialsensor.graphdatabases.GraphDatabase;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
@@ -93,7 +95,7 @@ public class ClusteringBenchmark extends BenchmarkBase implements RequiresGraphD
 
             // evaluation with NMI
             Map<Integer, List<Integer>> predictedCommunities = graphDatabase.mapCommunities( louvainMethodCache.getN() );
-            Map<Integer, List<Integer>> actualCommunities = mapNodesToCommunities( Utils.readTabulatedLines( bench.getActualCommunities(), 4 /* numberOfLinesToSkip */ ) );
+            Map<Integer, List<Integer>> actualCommunities = mapNodesToCommunities( EdgeListParser.parse( bench.getActualCommunities() ) );
             Metrics metrics = new Metrics();
             double NMI = metrics.normalizedMutualInformation( bench.getNodesCount(), actualCommunities, predictedCommunities );
             LOG.info( "NMI value: " + NMI );
@@ -103,15 +105,15 @@ public class ClusteringBenchmark extends BenchmarkBase implements RequiresGraphD
     }
 
 
-    private static Map<Integer, List<Integer>> mapNodesToCommunities( List<List<String>> tabulatedLines ) {
+    private static Map<Integer, List<Integer>> mapNodesToCommunities( EdgeArrays tabulatedLines ) {
         Map<Integer, List<Integer>> communities = new HashMap<>();
         // http://figshare.com/articles/Synthetic_Data_for_graphdb_benchmark/1221760
         // the format of the communityNNNN.dat files have node and community
         // number separated by a tab.
         // community number starts at 1 and not zero.
-        for ( List<String> line : tabulatedLines ) {
-            int node = Integer.valueOf( line.get( 0 ) );
-            int community = Integer.valueOf( line.get( 1 ).trim() ) - 1;
+        for ( int i = 0; i < tabulatedLines.size(); i++ ) {
+            int node = tabulatedLines.getSource( i );
+            int community = tabulatedLines.getDestination( i ) - 1;
             if ( !communities.containsKey( community ) ) {
                 communities.put( community, new ArrayList<>() );
             }
@@ -3,6 +3,7 @@ package eu.socialsensor.benchmarks;
 
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.QueryChecksum;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
 import eu.socialsensor.main.GraphDatabaseType;
@@ -29,8 +30,9 @@ public class FindNeighboursOfAllNodesBenchmark extends PermutingBenchmarkBase im
         graphDatabase.open();
         Stopwatch watch = Stopwatch.createUnstarted();
         watch.start();
-        graphDatabase.findAllNodeNeighbours();
+        final QueryChecksum checksum = graphDatabase.findAllNodeNeighbours();
         graphDatabase.shutdown();
         times.get( type ).add( (double) watch.elapsed( TimeUnit.MILLISECONDS ) );
+        recordChecksum( type, checksum );
     }
 }
@@ -3,6 +3,7 @@ package eu.socialsensor.benchmarks;
 
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.QueryChecksum;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
 import eu.socialsensor.main.GraphDatabaseType;
@@ -29,8 +30,9 @@ public class FindNodesOfAllEdgesBenchmark extends PermutingBenchmarkBase impleme
         graphDatabase.open();
         Stopwatch watch = Stopwatch.createUnstarted();
         watch.start();
-        graphDatabase.findNodesOfAllEdges();
+        final QueryChecksum checksum = graphDatabase.findNodesOfAllEdges();
         graphDatabase.shutdown();
         times.get( type ).add( (double) watch.elapsed( TimeUnit.MILLISECONDS ) );
+        recordChecksum( type, checksum );
     }
 }
@@ -4,6 +4,7 @@ package eu.socialsensor.benchmarks;
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.dataset.DatasetFactory;
 import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.QueryChecksum;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
 import eu.socialsensor.main.GraphDatabaseType;
@@ -25,7 +26,7 @@ public class FindShortestPathBenchmark extends PermutingBenchmarkBase implements
 
     public FindShortestPathBenchmark( BenchmarkConfiguration config ) {
         super( config, BenchmarkType.FIND_SHORTEST_PATH );
-        generatedNodes = DatasetFactory.getInstance().getDataset( config.getDataset() ).generateRandomNodes( config.getRandomNodes() );
+        generatedNodes = DatasetFactory.getInstance().getDataset( config.getDataset(), config.getDatasetMode() ).generateRandomNodes( config.getRandomNodes() );
     }
 
 
@@ -35,8 +36,9 @@ public class FindShortestPathBenchmark extends PermutingBenchmarkBase implements
         graphDatabase.open();
         Stopwatch watch = Stopwatch.createUnstarted();
         watch.start();
-        graphDatabase.shortestPaths( generatedNodes );
+        final QueryChecksum checksum = graphDatabase.shortestPaths( generatedNodes );
         graphDatabase.shutdown();
         times.get( type ).add( (double) watch.elapsed( TimeUnit.MILLISECONDS ) );
+        recordChecksum( type, checksum );
     }
 }
@@ -3,17 +3,37 @@ package eu.socialsensor.benchmarks;
 
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.Neo4jGraphDatabase;
+import eu.socialsensor.graphdatabases.SparkseeGraphDatabase;
+import eu.socialsensor.insert.Neo4jMassiveLoader;
+import eu.socialsensor.insert.SparkseeMassiveLoader;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 
 /**
- * MassiveInsertionBenchmark implementation
+ * MassiveInsertionBenchmark implementation. Databases with more than one
+ * configured massive loader load the data once per loader and the loaders are
+ * reported side by side; the first loader provides the regular results. The
+ * load, the index build and the flush of every run are also reported apart.
  *
  * @author sotbeis, sotbeis@iti.gr
  * @author Alexander Patrikalakis
@@ -21,7 +41,15 @@ import org.apache.logging.log4j.Logger;
 
 public class MassiveInsertionBenchmark extends PermutingBenchmarkBase implements InsertsGraphData {
 
+    public static final String LOADERS_OUTPUT_FILE_NAME = "MassiveInsertionLoaders.csv";
+    public static final String PHASES_OUTPUT_FILE_NAME = "MassiveInsertionPhases.csv";
     private static final Logger logger = LogManager.getLogger();
+    private static final String[] PHASES = { "load", "indexes", "flush" };
+
+    // times in milliseconds of every loader, one per scenario
+    private final Map<GraphDatabaseType, Map<Enum<?>, List<Double>>> loaderTimes = new EnumMap<>( GraphDatabaseType.class );
+    // times in milliseconds of every phase by loader name, one row per scenario
+    private final Map<GraphDatabaseType, Map<String, List<double[]>>> phaseTimes = new EnumMap<>( GraphDatabaseType.class );
 
 
     public MassiveInsertionBenchmark( BenchmarkConfiguration config ) {
@@ -31,18 +59,125 @@ public class MassiveInsertionBenchmark extends PermutingBenchmarkBase implements
 
     @Override
     public void benchmarkOne( GraphDatabaseType type, int scenarioNumber ) {
+        final List<? extends Enum<?>> loaders = getLoaders( type );
+        if ( loaders.size() < 2 ) {
+            times.get( type ).add( load( type, loaders.isEmpty() ? null : loaders.get( 0 ) ) );
+            return;
+        }
+
+        // load with the first loader last, so its graph is kept for the benchmarks that follow
+        for ( int i = loaders.size() - 1; i >= 0; i-- ) {
+            if ( i < loaders.size() - 1 ) {
+                Utils.deleteDatabase( type, bench );
+            }
+            final double elapsed = load( type, loaders.get( i ) );
+            loaderTimes.computeIfAbsent( type, t -> new LinkedHashMap<>() ).computeIfAbsent( loaders.get( i ), l -> new ArrayList<>() ).add( elapsed );
+            if ( i == 0 ) {
+                times.get( type ).add( elapsed );
+            }
+        }
+    }
+
+
+    /**
+     * @return the configured massive loaders of the database, empty if it
+     * has only one
+     */
+    private List<? extends Enum<?>> getLoaders( GraphDatabaseType type ) {
+        if ( GraphDatabaseType.NEO4J == type ) {
+            return bench.getNeo4jMassiveLoaders();
+        } else if ( GraphDatabaseType.SPARKSEE == type ) {
+            return bench.getSparkseeMassiveLoaders();
+        }
+        return Collections.emptyList();
+    }
+
+
+    /**
+     * @return the time in milliseconds
+     */
+    private double load( GraphDatabaseType type, Enum<?> loader ) {
         logger.debug( "Creating database instance for type " + type.getShortname() );
         GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
+        if ( loader instanceof Neo4jMassiveLoader ) {
+            ((Neo4jGraphDatabase) graphDatabase).setMassiveLoader( (Neo4jMassiveLoader) loader );
+        } else if ( loader instanceof SparkseeMassiveLoader ) {
+            ((SparkseeGraphDatabase) graphDatabase).setMassiveLoader( (SparkseeMassiveLoader) loader );
+        }
         logger.debug( "Prepare database instance for type {} for massive loading", type.getShortname() );
         // the following step includes provisioning in managed database services. Do not measure this time as
         // it is not related to the action of inserting.
         graphDatabase.createGraphForMassiveLoad();
-        logger.debug( "Massive load graph in database type {}", type.getShortname() );
-        Stopwatch watch = Stopwatch.createUnstarted();
-        watch.start();
+        logger.debug( "Massive load graph in database type {}{}", type.getShortname(), loader == null ? "" : " with " + loader );
+        final double[] phases = new double[PHASES.length];
+        Stopwatch watch = Stopwatch.createStarted();
         graphDatabase.massiveModeLoading( bench.getDataset() );
+        phases[0] = watch.elapsed( TimeUnit.MICROSECONDS ) / 1000.0;
+        if ( graphDatabase.getMassiveLoadResumedMillis() > 0 ) {
+            // the time lost between the checkpoint and the failure is left out
+            logger.info( "Adding {} ms of loading before the checkpoint to the resumed load", graphDatabase.getMassiveLoadResumedMillis() );
+            phases[0] += graphDatabase.getMassiveLoadResumedMillis();
+        }
+        logger.debug( "Build massive indexes in database type {}", type.getShortname() );
+        watch.reset().start();
+        graphDatabase.buildMassiveIndexes();
+        phases[1] = watch.elapsed( TimeUnit.MICROSECONDS ) / 1000.0;
         logger.debug( "Shutdown massive graph in database type {}", type.getShortname() );
+        watch.reset().start();
         graphDatabase.shutdownMassiveGraph();
-        times.get( type ).add( (double) watch.elapsed( TimeUnit.MILLISECONDS ) );
+        phases[2] = watch.elapsed( TimeUnit.MICROSECONDS ) / 1000.0;
+        logger.info( "Massive load of {}{}: load {} ms, indexes {} ms, flush {} ms", type.getShortname(), loader == null ? "" : " with " + loader, phases[0], phases[1], phases[2] );
+        // property payloads are the main driver of the store size
+        logger.info( "Store size of {}{}: {} bytes", type.getShortname(), loader == null ? "" : " with " + loader,
+                FileUtils.sizeOfDirectory( Utils.generateStorageDirectory( type, bench.getDbStorageDirectory() ) ) );
+
+        phaseTimes.computeIfAbsent( type, t -> new LinkedHashMap<>() ).computeIfAbsent( loader == null ? "" : loader.name(), l -> new ArrayList<>() ).add( phases );
+        return phases[0] + phases[1] + phases[2];
+    }
+
+
+    @Override
+    public void post() {
+        super.post();
+        writePhases();
+        if ( loaderTimes.isEmpty() ) {
+            return;
+        }
+
+        final File output = new File( outputFile.getParentFile(), LOADERS_OUTPUT_FILE_NAME );
+        logger.info( "Write massive loader results to " + output );
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+            out.write( "DB,Loader,Mean (s),Sample Size,Standard Deviation\n" );
+            for ( Map.Entry<GraphDatabaseType, Map<Enum<?>, List<Double>>> entry : loaderTimes.entrySet() ) {
+                for ( Map.Entry<Enum<?>, List<Double>> loader : entry.getValue().entrySet() ) {
+                    final DescriptiveStatistics stats = new DescriptiveStatistics( Utils.convert( loader.getValue() ) );
+                    out.write( String.format( "%s,%s,%f,%d,%f\n", entry.getKey().getShortname(), loader.getKey().name(), stats.getMean() / 1000, stats.getN(), stats.getStandardDeviation() / 1000 ) );
+                }
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+        }
+    }
+
+
+    private void writePhases() {
+        final File output = new File( outputFile.getParentFile(), PHASES_OUTPUT_FILE_NAME );
+        logger.info( "Write massive insertion phases to " + output );
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+            out.write( "DB,Loader,Phase,Mean (s),Sample Size,Standard Deviation\n" );
+            for ( Map.Entry<GraphDatabaseType, Map<String, List<double[]>>> entry : phaseTimes.entrySet() ) {
+                for ( Map.Entry<String, List<double[]>> loader : entry.getValue().entrySet() ) {
+                    for ( int phase = 0; phase < PHASES.length; phase++ ) {
+                        final DescriptiveStatistics stats = new DescriptiveStatistics();
+                        for ( double[] phases : loader.getValue() ) {
+                            stats.addValue( phases[phase] );
+                        }
+                        out.write( String.format( "%s,%s,%s,%f,%d,%f\n", entry.getKey().getShortname(), loader.getKey(), PHASES[phase], stats.getMean() / 1000, stats.getN(), stats.getStandardDeviation() / 1000 ) );
+                    }
+                }
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+        }
     }
 }
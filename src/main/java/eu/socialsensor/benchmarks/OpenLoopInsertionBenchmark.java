@@ -0,0 +1,130 @@
+package eu.socialsensor.benchmarks;
+
+
+import com.google.common.base.Stopwatch;
+import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.main.GraphDatabaseType;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Inserts edges at every configured arrival rate, each time into a fresh
+ * database, with latencies measured from the intended arrival of every edge
+ * so queueing behind a stalled store is not hidden. The sweep stops at the
+ * first rate whose p99 latency misses the objective, as higher rates only
+ * queue more, and the highest rate within the objective is reported as the
+ * sustainable ingest rate. The regular results hold the time of the last
+ * rate, and that database is kept for the benchmarks that follow.
+ *
+ * @see eu.socialsensor.insert.InsertionBase#createGraphAtRate(File, double, eu.socialsensor.insert.ArrivalProcess, long)
+ */
+public class OpenLoopInsertionBenchmark extends PermutingBenchmarkBase implements InsertsGraphData {
+
+    public static final String RATES_OUTPUT_FILE_NAME = "OpenLoopInsertionRates.csv";
+    public static final String SUSTAINABLE_OUTPUT_FILE_NAME = "OpenLoopInsertionSustainable.csv";
+    public static final String LATENCIES_OUTPUT_FILE_NAME_BASE = "OpenLoopInsertionLatencies";
+    private static final Logger logger = LogManager.getLogger();
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+
+    // latencies in nanoseconds at every rate, merged over the scenarios
+    private final Map<GraphDatabaseType, SortedMap<Double, Histogram>> latencies = new EnumMap<>( GraphDatabaseType.class );
+    // time spent inserting at every rate in milliseconds, summed over the scenarios
+    private final Map<GraphDatabaseType, SortedMap<Double, Long>> durations = new EnumMap<>( GraphDatabaseType.class );
+
+
+    public OpenLoopInsertionBenchmark( BenchmarkConfiguration config ) {
+        super( config, BenchmarkType.OPEN_LOOP_INSERTION );
+        for ( GraphDatabaseType db : bench.getSelectedDatabases() ) {
+            latencies.put( db, new TreeMap<>() );
+            durations.put( db, new TreeMap<>() );
+        }
+    }
+
+
+    @Override
+    public void benchmarkOne( GraphDatabaseType type, int scenarioNumber ) {
+        final File dbStorageDirectory = Utils.generateStorageDirectory( type, bench.getDbStorageDirectory() );
+        double elapsed = 0;
+        for ( double rate : bench.getOpenLoopRates() ) {
+            if ( dbStorageDirectory.exists() ) {
+                Utils.deleteDatabase( type, bench );
+            }
+            GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
+            graphDatabase.createGraphForSingleLoad();
+            Stopwatch watch = Stopwatch.createStarted();
+            final Histogram histogram = graphDatabase.openLoopLoading( bench.getDataset(), rate, bench.getOpenLoopArrivals(), bench.getOpenLoopEdges() );
+            elapsed = watch.elapsed( TimeUnit.MILLISECONDS );
+            graphDatabase.shutdown();
+
+            latencies.get( type ).computeIfAbsent( rate, r -> new Histogram( histogram.getNumberOfSignificantValueDigits() ) ).add( histogram );
+            durations.get( type ).merge( rate, histogram.getEndTimeStamp() - histogram.getStartTimeStamp(), Long::sum );
+            final double p99 = histogram.getValueAtPercentile( 99 ) / NANOS_PER_MILLISECOND;
+            logger.info( "{} at {} edges/s: p99 {} ms", type.getShortname(), rate, p99 );
+            if ( p99 > bench.getOpenLoopSloP99Millis() ) {
+                logger.info( "{} misses the p99 objective of {} ms at {} edges/s, skipping higher rates", type.getShortname(), bench.getOpenLoopSloP99Millis(), rate );
+                break;
+            }
+        }
+        times.get( type ).add( elapsed );
+    }
+
+
+    @Override
+    public void post() {
+        super.post();
+        final File rates = new File( bench.getResultsPath(), RATES_OUTPUT_FILE_NAME );
+        final File sustainable = new File( bench.getResultsPath(), SUSTAINABLE_OUTPUT_FILE_NAME );
+        logger.info( "Write open loop results to {} and {}", rates, sustainable );
+        try ( BufferedWriter ratesOut = new BufferedWriter( new FileWriter( rates ) );
+              BufferedWriter sustainableOut = new BufferedWriter( new FileWriter( sustainable ) ) ) {
+            ratesOut.write( "DB,Target (edges/s),Achieved (edges/s),Edges,p50 (ms),p99 (ms),p99.9 (ms),Max (ms),Within SLO\n" );
+            sustainableOut.write( "DB,Arrivals,SLO p99 (ms),Sustainable (edges/s)\n" );
+            for ( Map.Entry<GraphDatabaseType, SortedMap<Double, Histogram>> entry : latencies.entrySet() ) {
+                double sustainableRate = 0;
+                boolean withinSlo = true;
+                for ( Map.Entry<Double, Histogram> point : entry.getValue().entrySet() ) {
+                    final Histogram histogram = point.getValue();
+                    final double p99 = histogram.getValueAtPercentile( 99 ) / NANOS_PER_MILLISECOND;
+                    final long millis = durations.get( entry.getKey() ).get( point.getKey() );
+                    withinSlo &= p99 <= bench.getOpenLoopSloP99Millis();
+                    if ( withinSlo ) {
+                        sustainableRate = point.getKey();
+                    }
+                    ratesOut.write( String.format( "%s,%f,%f,%d,%f,%f,%f,%f,%b\n", entry.getKey().getShortname(), point.getKey(),
+                            millis == 0 ? Double.NaN : histogram.getTotalCount() * 1000.0 / millis, histogram.getTotalCount(),
+                            histogram.getValueAtPercentile( 50 ) / NANOS_PER_MILLISECOND, p99, histogram.getValueAtPercentile( 99.9 ) / NANOS_PER_MILLISECOND,
+                            histogram.getMaxValue() / NANOS_PER_MILLISECOND, p99 <= bench.getOpenLoopSloP99Millis() ) );
+                    writePercentiles( entry.getKey(), point.getKey(), histogram );
+                }
+                sustainableOut.write( String.format( "%s,%s,%f,%f\n", entry.getKey().getShortname(), bench.getOpenLoopArrivals().name(), bench.getOpenLoopSloP99Millis(), sustainableRate ) );
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", rates, e.getMessage() ) );
+        }
+    }
+
+
+    private void writePercentiles( GraphDatabaseType type, double rate, Histogram histogram ) throws IOException {
+        final File output = new File( bench.getResultsPath(), String.format( "%s.%s.%d.hgrm", LATENCIES_OUTPUT_FILE_NAME_BASE, type.getShortname(), Math.round( rate ) ) );
+        try ( PrintStream out = new PrintStream( new FileOutputStream( output ) ) ) {
+            histogram.outputPercentileDistribution( out, NANOS_PER_MILLISECOND );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package eu.socialsensor.benchmarks;
+
+
+import com.google.common.base.Stopwatch;
+import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.QueryChecksum;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.main.GraphDatabaseType;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Finds the neighbours of all nodes with 1, 2, 4, ... up to the configured
+ * number of reader threads, each reading its partition of the vertex space in
+ * a transaction of its own, and reports the speedup over one thread. An
+ * untimed traversal with all threads warms the caches first, so the single
+ * thread run does not pay for the cold start. The regular results hold the
+ * times with all threads.
+ *
+ * @see eu.socialsensor.graphdatabases.GraphDatabase#findAllNodeNeighboursInParallel(int)
+ */
+public class ParallelFindNeighboursBenchmark extends PermutingBenchmarkBase implements RequiresGraphData {
+
+    public static final String THREADS_OUTPUT_FILE_NAME = "ParallelFindNeighboursThreads.csv";
+    private static final Logger logger = LogManager.getLogger();
+
+    private final List<Integer> threadCounts;
+    // times in milliseconds at every thread count, one per scenario
+    private final Map<GraphDatabaseType, SortedMap<Integer, List<Double>>> sweepTimes = new HashMap<>();
+    private final Map<GraphDatabaseType, Long> neighbours = new HashMap<>();
+
+
+    public ParallelFindNeighboursBenchmark( BenchmarkConfiguration config ) {
+        super( config, BenchmarkType.PARALLEL_FIND_NEIGHBOURS );
+        threadCounts = ParallelInsertionBenchmark.threadCounts( config.getTraversalThreads() );
+        for ( GraphDatabaseType db : config.getSelectedDatabases() ) {
+            sweepTimes.put( db, new TreeMap<>() );
+            for ( int threads : threadCounts ) {
+                sweepTimes.get( db ).put( threads, new ArrayList<>( config.getScenarios() ) );
+            }
+        }
+    }
+
+
+    @Override
+    public void benchmarkOne( GraphDatabaseType type, int scenarioNumber ) {
+        GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
+        graphDatabase.open();
+        try {
+            graphDatabase.findAllNodeNeighboursInParallel( bench.getTraversalThreads() );
+            double elapsed = 0;
+            for ( int threads : threadCounts ) {
+                Stopwatch watch = Stopwatch.createStarted();
+                final QueryChecksum checksum = graphDatabase.findAllNodeNeighboursInParallel( threads );
+                elapsed = watch.elapsed( TimeUnit.MICROSECONDS ) / 1000.0;
+                logger.debug( "{} visited {} neighbours with {} threads in {} ms", type.getShortname(), checksum.getResults(), threads, elapsed );
+                sweepTimes.get( type ).get( threads ).add( elapsed );
+                neighbours.put( type, checksum.getResults() );
+                // every thread count must cover the same vertexes
+                recordChecksum( type, checksum );
+            }
+            times.get( type ).add( elapsed );
+        } finally {
+            graphDatabase.shutdown();
+        }
+    }
+
+
+    @Override
+    public void post() {
+        super.post();
+        final File output = new File( outputFile.getParentFile(), THREADS_OUTPUT_FILE_NAME );
+        logger.info( "Write thread sweep results to {}", output );
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+            out.write( "DB,Threads,Mean (s),Sample Size,Standard Deviation,Neighbours/s,Speedup\n" );
+            for ( Map.Entry<GraphDatabaseType, SortedMap<Integer, List<Double>>> entry : sweepTimes.entrySet() ) {
+                final long visited = neighbours.getOrDefault( entry.getKey(), 0L );
+                double baseline = Double.NaN;
+                for ( Map.Entry<Integer, List<Double>> point : entry.getValue().entrySet() ) {
+                    final DescriptiveStatistics stats = new DescriptiveStatistics( Utils.convert( point.getValue() ) );
+                    final double mean = stats.getMean() / 1000;
+                    if ( Double.isNaN( baseline ) ) {
+                        baseline = mean;
+                    }
+                    out.write( String.format( "%s,%d,%f,%d,%f,%f,%f\n", entry.getKey().getShortname(), point.getKey(), mean, stats.getN(),
+                            stats.getStandardDeviation() / 1000, visited / mean, baseline / mean ) );
+                }
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+        }
+    }
+}
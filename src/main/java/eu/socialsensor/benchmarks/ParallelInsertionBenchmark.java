@@ -0,0 +1,45 @@
+package eu.socialsensor.benchmarks;
+
+
+import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.insert.ParallelInsertionResult;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkType;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Loads the dataset with 1, 2, 4, ... up to the configured number of writer
+ * threads and reports the throughput at every thread count.
+ *
+ * @see eu.socialsensor.insert.InsertionBase#createGraphInParallel(java.io.File, int, int)
+ */
+public class ParallelInsertionBenchmark extends SweepingInsertionBenchmark {
+
+    public static final String THREADS_OUTPUT_FILE_NAME = "ParallelInsertionThreads.csv";
+
+
+    public ParallelInsertionBenchmark( BenchmarkConfiguration config ) {
+        super( config, BenchmarkType.PARALLEL_INSERTION, "Threads", threadCounts( config.getInsertionThreads() ), THREADS_OUTPUT_FILE_NAME );
+    }
+
+
+    /**
+     * @return 1, 2, 4, ... and the given number of threads
+     */
+    static List<Integer> threadCounts( int maxThreads ) {
+        final List<Integer> threadCounts = new ArrayList<>();
+        for ( int threads = 1; threads < maxThreads; threads *= 2 ) {
+            threadCounts.add( threads );
+        }
+        threadCounts.add( maxThreads );
+        return threadCounts;
+    }
+
+
+    @Override
+    protected ParallelInsertionResult load( GraphDatabase<?, ?, ?, ?> graphDatabase, int threads ) {
+        return graphDatabase.parallelModeLoading( bench.getDataset(), threads, bench.getInsertionBatchSize() );
+    }
+}
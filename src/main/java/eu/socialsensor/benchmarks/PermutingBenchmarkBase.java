@@ -1,13 +1,20 @@
 package eu.socialsensor.benchmarks;
 
 
+import eu.socialsensor.graphdatabases.QueryChecksum;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.collections4.iterators.PermutationIterator;
@@ -23,6 +30,8 @@ import org.apache.logging.log4j.Logger;
 public abstract class PermutingBenchmarkBase extends BenchmarkBase {
 
     protected final Map<GraphDatabaseType, List<Double>> times;
+    // checksum of the query work of every database, in the order recorded
+    private final Map<GraphDatabaseType, QueryChecksum> checksums = new LinkedHashMap<>();
     private static final Logger LOG = LogManager.getLogger();
 
 
@@ -66,7 +75,55 @@ public abstract class PermutingBenchmarkBase extends BenchmarkBase {
     public abstract void benchmarkOne( GraphDatabaseType type, int scenarioNumber );
 
 
+    /**
+     * @return the times of every database in milliseconds, one per scenario
+     */
+    public Map<GraphDatabaseType, List<Double>> getTimes() {
+        return times;
+    }
+
+
+    /**
+     * Records the checksum of a query run. Every run must do the same work
+     * on a database.
+     */
+    protected final void recordChecksum( GraphDatabaseType db, QueryChecksum checksum ) {
+        LOG.info( "{} checksum of {}: {}", type.longname(), db.getShortname(), checksum );
+        final QueryChecksum previous = checksums.put( db, checksum );
+        if ( previous != null && (!previous.isEquivalent( checksum ) || previous.getHash() != checksum.getHash()) ) {
+            LOG.warn( "{} checksum of {} changed between runs: {} before, {} now", type.longname(), db.getShortname(), previous, checksum );
+        }
+    }
+
+
     public void post() {
         Utils.writeResults( outputFile, times, type.longname() );
+        if ( !checksums.isEmpty() ) {
+            writeChecksums();
+        }
+    }
+
+
+    /**
+     * Writes the checksums and cross-checks them against the first database
+     */
+    private void writeChecksums() {
+        final File output = new File( outputFile.getParentFile(), type.getChecksumsFileName() );
+        LOG.info( "Write {} checksums to {}", type.longname(), output );
+        final Map.Entry<GraphDatabaseType, QueryChecksum> reference = checksums.entrySet().iterator().next();
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+            out.write( "DB,Results,Path Hops,Hash,Equivalent to " + reference.getKey().getShortname() + "\n" );
+            for ( Map.Entry<GraphDatabaseType, QueryChecksum> entry : checksums.entrySet() ) {
+                final QueryChecksum checksum = entry.getValue();
+                final boolean equivalent = checksum.isEquivalent( reference.getValue() );
+                if ( !equivalent ) {
+                    LOG.warn( "{} did different work on {} ({}) than on {} ({})", type.longname(), entry.getKey().getShortname(), checksum,
+                            reference.getKey().getShortname(), reference.getValue() );
+                }
+                out.write( String.format( "%s,%d,%d,%016x,%b\n", entry.getKey().getShortname(), checksum.getResults(), checksum.getLengths(), checksum.getHash(), equivalent ) );
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+        }
     }
 }
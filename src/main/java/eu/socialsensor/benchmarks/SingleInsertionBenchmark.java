@@ -2,18 +2,31 @@ package eu.socialsensor.benchmarks;
 
 
 import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.graphdatabases.Neo4jGraphDatabase;
+import eu.socialsensor.insert.InsertionLatencies;
+import eu.socialsensor.insert.Neo4jInsertionStrategy;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 
 /**
- * SingleInsertionBenchmak implementation
+ * SingleInsertionBenchmak implementation. When more than one Neo4j insertion
+ * strategy is configured, Neo4j loads the data once per strategy and the
+ * strategies are reported side by side; the first strategy provides the
+ * regular results. The latency of every operation goes to HdrHistogram
+ * percentile distributions and histogram logs.
  *
  * @author sotbeis, sotbeis@iti.gr
  * @author Alexander Patrikalakis
@@ -21,6 +34,8 @@ import org.apache.logging.log4j.Logger;
 public class SingleInsertionBenchmark extends PermutingBenchmarkBase implements InsertsGraphData {
 
     public static final String INSERTION_TIMES_OUTPUT_FILE_NAME_BASE = "SINGLE_INSERTIONResults";
+    public static final String LATENCIES_OUTPUT_FILE_NAME_BASE = "SingleInsertionLatencies";
+    public static final String NEO4J_STRATEGIES_OUTPUT_FILE_NAME = "SingleInsertionNeo4jStrategies.csv";
     private static final Logger LOG = LogManager.getLogger();
 
 
@@ -29,25 +44,119 @@ public class SingleInsertionBenchmark extends PermutingBenchmarkBase implements
     }
 
 
+    /**
+     * @param variant the alternative implementation of the database, or null
+     * @return the prefix of the files with intermediate times, completed by
+     * the scenario number
+     */
+    public static String getTimesFileNamePrefix( GraphDatabaseType type, String variant ) {
+        return INSERTION_TIMES_OUTPUT_FILE_NAME_BASE + "." + type.getShortname() + (variant == null ? "" : "." + variant);
+    }
+
+
+    /**
+     * @param variant the alternative implementation of the database, or null
+     * @return the prefix of the histogram files, which also names the
+     * latencies in memory
+     */
+    public static String getLatenciesFileNamePrefix( GraphDatabaseType type, String variant ) {
+        return LATENCIES_OUTPUT_FILE_NAME_BASE + "." + type.getShortname() + (variant == null ? "" : "." + variant);
+    }
+
+
     @Override
     public void post() {
         LOG.info( "Write results to " + outputFile.getAbsolutePath() );
+        final Map<Neo4jInsertionStrategy, List<Double>> strategyTimes = new LinkedHashMap<>();
         for ( GraphDatabaseType type : bench.getSelectedDatabases() ) {
-            String prefix = outputFile.getParentFile().getAbsolutePath() + File.separator + INSERTION_TIMES_OUTPUT_FILE_NAME_BASE + "." + type.getShortname();
-            List<List<Double>> insertionTimesOfEachScenario = Utils.getDocumentsAs2dList( prefix, bench.getScenarios() );
-            times.put( type, Utils.calculateMeanList( insertionTimesOfEachScenario ) );
-            Utils.deleteMultipleFiles( prefix, bench.getScenarios() );
+            if ( GraphDatabaseType.NEO4J == type ) {
+                for ( Neo4jInsertionStrategy strategy : bench.getNeo4jInsertionStrategies() ) {
+                    strategyTimes.put( strategy, readTimes( type, strategy.getShortname() ) );
+                    writeLatencies( type, strategy.getShortname() );
+                }
+                times.put( type, strategyTimes.get( bench.getNeo4jInsertionStrategies().get( 0 ) ) );
+            } else {
+                times.put( type, readTimes( type, null ) );
+                writeLatencies( type, null );
+            }
         }
         // use the logic of the superclass method after populating the times map
         super.post();
+
+        if ( strategyTimes.size() > 1 ) {
+            writeStrategyResults( strategyTimes );
+        }
+    }
+
+
+    private List<Double> readTimes( GraphDatabaseType type, String variant ) {
+        String prefix = outputFile.getParentFile().getAbsolutePath() + File.separator + getTimesFileNamePrefix( type, variant );
+        List<List<Double>> insertionTimesOfEachScenario = Utils.getDocumentsAs2dList( prefix, bench.getScenarios() );
+        Utils.deleteMultipleFiles( prefix, bench.getScenarios() );
+        return Utils.calculateMeanList( insertionTimesOfEachScenario );
+    }
+
+
+    private void writeLatencies( GraphDatabaseType type, String variant ) {
+        final String prefix = getLatenciesFileNamePrefix( type, variant );
+        final InsertionLatencies latencies = InsertionLatencies.remove( prefix );
+        if ( latencies == null ) {
+            return;
+        }
+        LOG.info( "Write insertion latencies of {} to {}", type.getShortname(), outputFile.getParentFile() );
+        try {
+            latencies.write( outputFile.getParentFile(), prefix );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing latencies to %s: %s", prefix, e.getMessage() ) );
+        }
+    }
+
+
+    /**
+     * Writes the total time and the mean time per thousand edges of every
+     * strategy. The last of the times is the total, the others are per
+     * thousand edges.
+     */
+    private void writeStrategyResults( Map<Neo4jInsertionStrategy, List<Double>> strategyTimes ) {
+        final File output = new File( outputFile.getParentFile(), NEO4J_STRATEGIES_OUTPUT_FILE_NAME );
+        LOG.info( "Write Neo4j insertion strategy results to " + output );
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+            out.write( "Strategy,Total (s),Mean per 1000 Edges (ms)\n" );
+            for ( Map.Entry<Neo4jInsertionStrategy, List<Double>> entry : strategyTimes.entrySet() ) {
+                final List<Double> means = entry.getValue();
+                double perThousand = 0;
+                for ( int i = 0; i < means.size() - 1; i++ ) {
+                    perThousand += means.get( i ) / (means.size() - 1);
+                }
+                final double total = means.isEmpty() ? 0 : means.get( means.size() - 1 ) / 1000;
+                out.write( String.format( "%s,%f,%f\n", entry.getKey().name(), total, perThousand ) );
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+        }
     }
 
 
     @Override
     public void benchmarkOne( GraphDatabaseType type, int scenarioNumber ) {
-        GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
-        graphDatabase.createGraphForSingleLoad();
-        graphDatabase.singleModeLoading( bench.getDataset(), bench.getResultsPath(), scenarioNumber );
-        graphDatabase.shutdown();
+        if ( GraphDatabaseType.NEO4J != type ) {
+            GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
+            graphDatabase.createGraphForSingleLoad();
+            graphDatabase.singleModeLoading( bench.getDataset(), bench.getResultsPath(), scenarioNumber );
+            graphDatabase.shutdown();
+            return;
+        }
+
+        final List<Neo4jInsertionStrategy> strategies = bench.getNeo4jInsertionStrategies();
+        // load the first strategy last, so its graph is kept for the benchmarks that follow
+        for ( int i = strategies.size() - 1; i >= 0; i-- ) {
+            if ( i < strategies.size() - 1 ) {
+                Utils.deleteDatabase( type, bench );
+            }
+            Neo4jGraphDatabase neo4jGraphDatabase = (Neo4jGraphDatabase) Utils.createDatabaseInstance( bench, type );
+            neo4jGraphDatabase.createGraphForSingleLoad();
+            neo4jGraphDatabase.singleModeLoading( bench.getDataset(), bench.getResultsPath(), scenarioNumber, strategies.get( i ) );
+            neo4jGraphDatabase.shutdown();
+        }
     }
 }
@@ -0,0 +1,127 @@
+package eu.socialsensor.benchmarks;
+
+
+import com.google.common.base.Stopwatch;
+import eu.socialsensor.graphdatabases.GraphDatabase;
+import eu.socialsensor.insert.ParallelInsertionResult;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkType;
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.main.GraphDatabaseType;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.math3.stat.descriptive.AggregateSummaryStatistics;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Base class of the transactional insertion benchmarks that load the dataset
+ * once for every value of a parameter, each time into a fresh database. The
+ * sweep report has the throughput and commit latency at every value; the
+ * regular results hold the times at the last value, and that database is kept
+ * for the benchmarks that follow.
+ */
+public abstract class SweepingInsertionBenchmark extends PermutingBenchmarkBase implements InsertsGraphData {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final String parameterName;
+    private final List<Integer> parameterValues;
+    private final File sweepOutputFile;
+    // times in milliseconds at every value, one per scenario
+    private final Map<GraphDatabaseType, SortedMap<Integer, List<Double>>> sweepTimes;
+    private final Map<GraphDatabaseType, SortedMap<Integer, List<StatisticalSummary>>> commitLatencies;
+    // counted by the loads, so no pass over the dataset is needed for it
+    private long edges = 0;
+
+
+    protected SweepingInsertionBenchmark( BenchmarkConfiguration bench, BenchmarkType type, String parameterName, List<Integer> parameterValues, String sweepOutputFileName ) {
+        super( bench, type );
+        if ( parameterValues.isEmpty() ) {
+            throw new IllegalArgumentException( type.longname() + " needs at least one value of " + parameterName );
+        }
+        this.parameterName = parameterName;
+        this.parameterValues = parameterValues;
+        this.sweepOutputFile = new File( bench.getResultsPath(), sweepOutputFileName );
+        sweepTimes = new HashMap<>();
+        commitLatencies = new HashMap<>();
+        for ( GraphDatabaseType db : bench.getSelectedDatabases() ) {
+            sweepTimes.put( db, new TreeMap<>() );
+            commitLatencies.put( db, new TreeMap<>() );
+            for ( int value : parameterValues ) {
+                sweepTimes.get( db ).put( value, new ArrayList<>( bench.getScenarios() ) );
+                commitLatencies.get( db ).put( value, new ArrayList<>( bench.getScenarios() ) );
+            }
+        }
+    }
+
+
+    /**
+     * Loads the dataset into a database created for single load
+     *
+     * @return the number of inserted edges and the commit latencies
+     */
+    protected abstract ParallelInsertionResult load( GraphDatabase<?, ?, ?, ?> graphDatabase, int parameterValue );
+
+
+    @Override
+    public void benchmarkOne( GraphDatabaseType type, int scenarioNumber ) {
+        final File dbStorageDirectory = Utils.generateStorageDirectory( type, bench.getDbStorageDirectory() );
+        double elapsed = 0;
+        for ( int value : parameterValues ) {
+            if ( dbStorageDirectory.exists() ) {
+                Utils.deleteDatabase( type, bench );
+            }
+            GraphDatabase<?, ?, ?, ?> graphDatabase = Utils.createDatabaseInstance( bench, type );
+            graphDatabase.createGraphForSingleLoad();
+            logger.debug( "{} in database type {} with {} {}", this.type.longname(), type.getShortname(), parameterName, value );
+            Stopwatch watch = Stopwatch.createStarted();
+            final ParallelInsertionResult result = load( graphDatabase, value );
+            elapsed = watch.elapsed( TimeUnit.MILLISECONDS );
+            graphDatabase.shutdown();
+            edges = result.getEdgeCount();
+            sweepTimes.get( type ).get( value ).add( elapsed );
+            commitLatencies.get( type ).get( value ).add( result.getCommitLatencies() );
+        }
+        times.get( type ).add( elapsed );
+    }
+
+
+    @Override
+    public void post() {
+        super.post();
+        logger.info( "Write {} sweep results to {}", parameterName, sweepOutputFile );
+        try ( BufferedWriter out = new BufferedWriter( new FileWriter( sweepOutputFile ) ) ) {
+            out.write( String.format( "DB,%s,Mean (s),Sample Size,Standard Deviation,Edges/s,Speedup,Commits,Commit Mean (ms),Commit Standard Deviation,Commit Max (ms)\n", parameterName ) );
+            for ( Map.Entry<GraphDatabaseType, SortedMap<Integer, List<Double>>> entry : sweepTimes.entrySet() ) {
+                double baseline = Double.NaN;
+                for ( Map.Entry<Integer, List<Double>> point : entry.getValue().entrySet() ) {
+                    final DescriptiveStatistics stats = new DescriptiveStatistics( Utils.convert( point.getValue() ) );
+                    final StatisticalSummary commits = AggregateSummaryStatistics.aggregate( commitLatencies.get( entry.getKey() ).get( point.getKey() ) );
+                    final double mean = stats.getMean() / 1000;
+                    if ( Double.isNaN( baseline ) ) {
+                        baseline = mean;
+                    }
+                    out.write( String.format( "%s,%d,%f,%d,%f,%f,%f,%d,%f,%f,%f\n", entry.getKey().getShortname(), point.getKey(), mean, stats.getN(),
+                            stats.getStandardDeviation() / 1000, edges / mean, baseline / mean,
+                            commits.getN(), commits.getMean(), commits.getStandardDeviation(), commits.getMax() ) );
+                }
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", sweepOutputFile, e.getMessage() ) );
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package eu.socialsensor.dataset;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Undirected adjacency of dense vertex ids 0..n-1 in compressed sparse row
+ * form, for the preprocessing stages that need to traverse a dataset.
+ */
+final class Adjacency {
+
+    final int n;
+    final int[] offsets;
+    final int[] neighbours;
+
+
+    Adjacency( int n, int[] sources, int[] destinations ) {
+        this.n = n;
+        this.offsets = new int[n + 1];
+        for ( int i = 0; i < sources.length; i++ ) {
+            offsets[sources[i] + 1]++;
+            offsets[destinations[i] + 1]++;
+        }
+        for ( int v = 0; v < n; v++ ) {
+            offsets[v + 1] += offsets[v];
+        }
+        this.neighbours = new int[2 * sources.length];
+        final int[] next = Arrays.copyOf( offsets, n );
+        for ( int i = 0; i < sources.length; i++ ) {
+            neighbours[next[sources[i]]++] = destinations[i];
+            neighbours[next[destinations[i]]++] = sources[i];
+        }
+    }
+
+
+    int degree( int v ) {
+        return offsets[v + 1] - offsets[v];
+    }
+}
@@ -0,0 +1,86 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.File;
+
+
+/**
+ * A dataset held on the heap as a pair of primitive int arrays. Parsing
+ * happens once, after which every pass is a plain array scan.
+ */
+public class ArrayDataset extends Dataset {
+
+    private final EdgeArrays edges;
+
+
+    public ArrayDataset( File datasetFile ) {
+        super( datasetFile );
+        this.edges = EdgeListParser.parse( datasetFile );
+    }
+
+
+    public int getEdgeCount() {
+        return edges.size();
+    }
+
+
+    @Override
+    public long getHeapSize() {
+        return super.getHeapSize() + 8L * edges.size();
+    }
+
+
+    @Override
+    public EdgeCursor cursor() {
+        return new ArrayEdgeCursor();
+    }
+
+
+    @Override
+    protected int[] buildNodeDictionary() {
+        if ( edges.size() > Integer.MAX_VALUE / 2 - 8 ) {
+            throw new IllegalStateException( "too many edges to build a node dictionary" );
+        }
+        final int[] ids = new int[2 * edges.size()];
+        for ( int i = 0; i < edges.size(); i++ ) {
+            ids[2 * i] = edges.getSource( i );
+            ids[2 * i + 1] = edges.getDestination( i );
+        }
+        return sortedDistinct( ids, ids.length );
+    }
+
+
+    private final class ArrayEdgeCursor implements EdgeCursor {
+
+        private int index = -1;
+
+
+        @Override
+        public boolean next() {
+            if ( index + 1 >= edges.size() ) {
+                index = edges.size();
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+
+        @Override
+        public int getSource() {
+            return edges.getSource( index );
+        }
+
+
+        @Override
+        public int getDestination() {
+            return edges.getDestination( index );
+        }
+
+
+        @Override
+        public void close() {
+            // NOOP, the arrays are shared by all cursors
+        }
+    }
+}
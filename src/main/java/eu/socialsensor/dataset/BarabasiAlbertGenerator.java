@@ -0,0 +1,44 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+
+
+/**
+ * Barabasi-Albert preferential attachment, using the linear-time algorithm of
+ * Batagelj and Brandes. Every node attaches averageDegree / 2 edges to earlier
+ * nodes, picked with probability proportional to their degree. The generator
+ * keeps one int per edge endpoint.
+ */
+public class BarabasiAlbertGenerator extends GraphGenerator {
+
+    private final int edgesPerNode;
+
+
+    public BarabasiAlbertGenerator( int nodes, int averageDegree, long seed ) {
+        super( nodes, averageDegree, seed );
+        this.edgesPerNode = averageDegree / 2;
+        if ( 2L * nodes * edgesPerNode > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "too many edges for the Barabasi-Albert generator" );
+        }
+    }
+
+
+    @Override
+    public void generate( GraphSink sink ) throws IOException {
+        // every edge adds both endpoints, so a uniform pick is a degree-proportional pick
+        final int[] endpoints = new int[2 * nodes * edgesPerNode];
+        int size = 0;
+        for ( int node = 0; node < nodes; node++ ) {
+            for ( int i = 0; i < edgesPerNode; i++ ) {
+                endpoints[size] = node;
+                final int target = endpoints[random.nextInt( size + 1 )];
+                endpoints[size + 1] = target;
+                size += 2;
+                if ( target != node ) {
+                    sink.edge( node + 1, target + 1 );
+                }
+            }
+        }
+    }
+}
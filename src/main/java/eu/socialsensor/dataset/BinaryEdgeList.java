@@ -0,0 +1,230 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Compact binary representation of a tabulated edge list. The file consists of
+ * a header (magic number, format version and edge count) followed by one pair
+ * of little-endian ints (source, destination) per edge. The binary file is
+ * written once next to the text dataset and memory-mapped afterwards.
+ */
+public class BinaryEdgeList {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final String FILE_EXTENSION = ".bin";
+    public static final int MAGIC = 0x47444245; // "GDBE"
+    // version 2 skips comment lines instead of a fixed number of header lines
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 16;
+    public static final int EDGE_SIZE = 8;
+
+    // keep every mapped segment well below the 2 GB limit of a single ByteBuffer
+    private static final long EDGES_PER_SEGMENT = 1L << 27;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final ByteBuffer[] segments;
+    private final long edgeCount;
+
+
+    private BinaryEdgeList( ByteBuffer[] segments, long edgeCount ) {
+        this.segments = segments;
+        this.edgeCount = edgeCount;
+    }
+
+
+    public static File getBinaryFile( File datasetFile ) {
+        return new File( datasetFile.getAbsolutePath() + FILE_EXTENSION );
+    }
+
+
+    public static boolean isUpToDate( File datasetFile, File binaryFile ) {
+        if ( !binaryFile.isFile() || binaryFile.lastModified() < datasetFile.lastModified() ) {
+            return false;
+        }
+        try ( FileChannel channel = FileChannel.open( binaryFile.toPath(), StandardOpenOption.READ ) ) {
+            final ByteBuffer header = readHeader( channel );
+            return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == VERSION;
+        } catch ( IOException e ) {
+            return false;
+        }
+    }
+
+
+    private static ByteBuffer readHeader( FileChannel channel ) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+        while ( header.hasRemaining() && channel.read( header ) >= 0 ) {
+            // read the complete header
+        }
+        header.flip();
+        return header;
+    }
+
+
+    /**
+     * Converts a tabulated text dataset into the binary edge list format. The
+     * output is written to a temporary file first and moved into place once
+     * complete, so an interrupted conversion never leaves a truncated file
+     * behind.
+     */
+    public static void convert( File datasetFile, File binaryFile ) {
+        logger.info( "Converting {} to binary edge list {}", datasetFile.getAbsolutePath(), binaryFile.getAbsolutePath() );
+        final File tmpFile = new File( binaryFile.getAbsolutePath() + ".tmp" );
+        final long[] edges = new long[1];
+        try ( FileChannel out = FileChannel.open( tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect( WRITE_BUFFER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+            out.position( HEADER_SIZE );
+            EdgeListParser.parse( datasetFile, chunk -> {
+                for ( int i = 0; i < chunk.size(); i++ ) {
+                    if ( buffer.remaining() < EDGE_SIZE ) {
+                        flush( buffer, out );
+                    }
+                    buffer.putInt( chunk.getSource( i ) ).putInt( chunk.getDestination( i ) );
+                }
+                edges[0] += chunk.size();
+            } );
+            flush( buffer, out );
+
+            buffer.putInt( MAGIC ).putInt( VERSION ).putLong( edges[0] );
+            buffer.flip();
+            out.write( buffer, 0 );
+            out.force( false );
+        } catch ( IOException | RuntimeException e ) {
+            tmpFile.delete();
+            throw new BenchmarkingException( "unable to convert dataset " + datasetFile.getAbsolutePath(), e );
+        }
+
+        try {
+            Files.move( tmpFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to move binary edge list into place: " + binaryFile.getAbsolutePath(), e );
+        }
+        logger.info( "Wrote {} edges to {}", edges[0], binaryFile.getAbsolutePath() );
+    }
+
+
+    private static void flush( ByteBuffer buffer, FileChannel out ) throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            out.write( buffer );
+        }
+        buffer.clear();
+    }
+
+
+    /**
+     * Memory-maps a binary edge list. The mapping stays valid after the channel
+     * is closed.
+     */
+    public static BinaryEdgeList open( File binaryFile ) {
+        try ( FileChannel channel = FileChannel.open( binaryFile.toPath(), StandardOpenOption.READ ) ) {
+            final ByteBuffer header = readHeader( channel );
+            if ( header.remaining() < HEADER_SIZE || header.getInt() != MAGIC ) {
+                throw new BenchmarkingException( "not a binary edge list: " + binaryFile.getAbsolutePath() );
+            }
+            final int version = header.getInt();
+            if ( version != VERSION ) {
+                throw new BenchmarkingException( String.format( "unsupported binary edge list version %d in %s", version, binaryFile.getAbsolutePath() ) );
+            }
+            final long edgeCount = header.getLong();
+            if ( channel.size() != HEADER_SIZE + edgeCount * EDGE_SIZE ) {
+                throw new BenchmarkingException( "truncated binary edge list: " + binaryFile.getAbsolutePath() );
+            }
+
+            final int numberOfSegments = (int) ((edgeCount + EDGES_PER_SEGMENT - 1) / EDGES_PER_SEGMENT);
+            final ByteBuffer[] segments = new ByteBuffer[numberOfSegments];
+            for ( int i = 0; i < numberOfSegments; i++ ) {
+                final long firstEdge = i * EDGES_PER_SEGMENT;
+                final long edgesInSegment = Math.min( EDGES_PER_SEGMENT, edgeCount - firstEdge );
+                segments[i] = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstEdge * EDGE_SIZE, edgesInSegment * EDGE_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+            }
+            return new BinaryEdgeList( segments, edgeCount );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to map binary edge list " + binaryFile.getAbsolutePath(), e );
+        }
+    }
+
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+
+    /**
+     * @return a new cursor positioned before the first edge. Cursors are not
+     * thread-safe, but any number of them may read the mapping concurrently.
+     */
+    public EdgeCursor cursor() {
+        return new MappedEdgeCursor();
+    }
+
+
+    private final class MappedEdgeCursor implements EdgeCursor {
+
+        private int segment = 0;
+        private int position = 0;
+        private int source;
+        private int destination;
+
+
+        @Override
+        public boolean next() {
+            while ( segment < segments.length && position >= segments[segment].limit() ) {
+                segment++;
+                position = 0;
+            }
+            if ( segment == segments.length ) {
+                return false;
+            }
+            // absolute reads leave the shared buffer position untouched
+            final ByteBuffer buffer = segments[segment];
+            source = buffer.getInt( position );
+            destination = buffer.getInt( position + 4 );
+            position += EDGE_SIZE;
+            return true;
+        }
+
+
+        @Override
+        public int getSource() {
+            return source;
+        }
+
+
+        @Override
+        public int getDestination() {
+            return destination;
+        }
+
+
+        @Override
+        public void close() {
+            // NOOP, the mapping is shared by all cursors
+        }
+    }
+
+
+    /**
+     * One-time conversion of text datasets, e.g. ahead of a benchmark session.
+     *
+     * @param args paths of the tabulated text datasets to convert
+     */
+    public static void main( String[] args ) {
+        for ( String arg : args ) {
+            final File datasetFile = new File( arg );
+            convert( datasetFile, getBinaryFile( datasetFile ) );
+        }
+    }
+}
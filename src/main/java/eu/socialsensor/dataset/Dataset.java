@@ -1,54 +1,148 @@
 package eu.socialsensor.dataset;
 
 
-import eu.socialsensor.utils.Utils;
 import java.io.File;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import org.apache.commons.math3.util.MathArrays;
 
 
 /**
+ * A graph dataset, exposed as a sequence of edges.
+ *
  * @author Alexander Patrikalakis
  */
-public class Dataset implements Iterable<List<String>> {
+public abstract class Dataset {
 
-    private final List<List<String>> data;
+    protected final File datasetFile;
+    private final Random random = new Random();
+    private int[] nodes = null;
+    private DatasetStatistics statistics = null;
 
 
-    public Dataset( File datasetFile ) {
-        data = Utils.readTabulatedLines( datasetFile, 4 /* numberOfLinesToSkip */ );
+    protected Dataset( File datasetFile ) {
+        this.datasetFile = datasetFile;
     }
 
 
-    public Set<Integer> generateRandomNodes( int numRandomNodes ) {
-        Set<String> nodes = new HashSet<>();
-        for ( List<String> line : data.subList( 4, data.size() ) ) {
-            for ( String nodeId : line ) {
-                nodes.add( nodeId.trim() );
-            }
+    public File getDatasetFile() {
+        return datasetFile;
+    }
+
+
+    /**
+     * @return a new cursor positioned before the first edge. The caller must
+     * close the cursor.
+     */
+    public abstract EdgeCursor cursor();
+
+
+    /**
+     * @return the distinct node ids of the dataset in ascending order. The
+     * dictionary is built on first use and kept for the lifetime of the
+     * dataset; callers must not modify it.
+     */
+    public synchronized int[] getNodes() {
+        if ( nodes == null ) {
+            nodes = buildNodeDictionary();
         }
+        return nodes;
+    }
+
 
-        List<String> nodeList = new ArrayList<>( nodes );
-        int[] nodeIndexList = new int[nodeList.size()];
-        for ( int i = 0; i < nodeList.size(); i++ ) {
-            nodeIndexList[i] = i;
+    /**
+     * @return the statistics of the dataset, read from the sidecar file next
+     * to the dataset or computed and persisted on first use
+     */
+    public synchronized DatasetStatistics getStatistics() {
+        if ( statistics == null ) {
+            statistics = DatasetStatistics.forDataset( this );
         }
-        MathArrays.shuffle( nodeIndexList );
+        return statistics;
+    }
 
-        Set<Integer> generatedNodes = new HashSet<>();
-        for ( int i = 0; i < numRandomNodes; i++ ) {
-            generatedNodes.add( Integer.valueOf( nodeList.get( nodeIndexList[i] ) ) );
+
+    /**
+     * @return whether the statistics may be computed from the edges when the
+     * sidecar file is missing or stale. Computing them holds every edge and
+     * node on the heap.
+     */
+    protected boolean canComputeStatistics() {
+        return true;
+    }
+
+
+    /**
+     * @return an estimate of the heap retained by this dataset, in bytes,
+     * including the node dictionary, which is built if it does not exist yet
+     */
+    public long getHeapSize() {
+        return 4L * getNodes().length;
+    }
+
+
+    /**
+     * Builds the node dictionary with one pass over the edges. Subclasses that
+     * hold the edges in memory may override this with a cheaper version.
+     */
+    protected int[] buildNodeDictionary() {
+        int[] ids = new int[1 << 16];
+        int size = 0;
+        try ( EdgeCursor cursor = cursor() ) {
+            while ( cursor.next() ) {
+                if ( size + 2 > ids.length ) {
+                    if ( ids.length >= Integer.MAX_VALUE / 2 ) {
+                        throw new IllegalStateException( "too many edges to build a node dictionary" );
+                    }
+                    ids = Arrays.copyOf( ids, 2 * ids.length );
+                }
+                ids[size++] = cursor.getSource();
+                ids[size++] = cursor.getDestination();
+            }
         }
-        return generatedNodes;
+        return sortedDistinct( ids, size );
     }
 
 
-    @Override
-    public Iterator<List<String>> iterator() {
-        return data.iterator();
+    /**
+     * Sorts the first size elements of ids in place and returns the distinct
+     * values among them.
+     */
+    protected static int[] sortedDistinct( int[] ids, int size ) {
+        Arrays.parallelSort( ids, 0, size );
+        int distinct = 0;
+        for ( int i = 0; i < size; i++ ) {
+            if ( distinct == 0 || ids[i] != ids[distinct - 1] ) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf( ids, distinct );
+    }
+
+
+    public Set<Integer> generateRandomNodes( int numRandomNodes ) {
+        final int[] nodes = getNodes();
+        if ( numRandomNodes < 0 || numRandomNodes > nodes.length ) {
+            throw new IllegalArgumentException( String.format( "cannot pick %d random nodes out of %d", numRandomNodes, nodes.length ) );
+        }
+
+        Set<Integer> generatedNodes = new HashSet<>();
+        if ( 2 * numRandomNodes > nodes.length ) {
+            // too close to the node count for rejection sampling to pay off
+            final int[] shuffled = nodes.clone();
+            MathArrays.shuffle( shuffled );
+            for ( int i = 0; i < numRandomNodes; i++ ) {
+                generatedNodes.add( shuffled[i] );
+            }
+            return generatedNodes;
+        }
+        synchronized ( random ) {
+            while ( generatedNodes.size() < numRandomNodes ) {
+                generatedNodes.add( nodes[random.nextInt( nodes.length )] );
+            }
+        }
+        return generatedNodes;
     }
 }
@@ -0,0 +1,96 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import org.iq80.snappy.SnappyFramedInputStream;
+
+
+/**
+ * Compression of a text dataset, recognized by the file extension.
+ * Compressed datasets are decompressed on a dedicated thread while the caller
+ * parses, so they can be read straight from shared storage without staging.
+ */
+public enum DatasetCompression {
+    NONE( "" ),
+    GZIP( ".gz" ),
+    /**
+     * The Snappy framing format, as written by snzip or python-snappy
+     */
+    SNAPPY( ".snappy" );
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+
+
+    private DatasetCompression( String extension ) {
+        this.extension = extension;
+    }
+
+
+    public String getExtension() {
+        return extension;
+    }
+
+
+    public static DatasetCompression forFile( File file ) {
+        for ( DatasetCompression compression : values() ) {
+            if ( compression != NONE && file.getName().endsWith( compression.extension ) ) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+
+    /**
+     * Opens the decompressed content of a dataset file. For compressed files
+     * the returned stream is fed by a background decompression thread.
+     */
+    public static InputStream openStream( File file ) throws IOException {
+        final DatasetCompression compression = forFile( file );
+        final InputStream in = new BufferedInputStream( new FileInputStream( file ), READ_BUFFER_SIZE );
+        if ( compression == NONE ) {
+            return in;
+        }
+        try {
+            return new DecompressingInputStream( file.getName(), compression.decompress( in ) );
+        } catch ( IOException | RuntimeException e ) {
+            in.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Opens the decompressed content of a dataset file as a channel. Plain
+     * files are read through a file channel directly.
+     */
+    public static ReadableByteChannel openChannel( File file ) throws IOException {
+        if ( forFile( file ) == NONE ) {
+            return FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        }
+        return Channels.newChannel( openStream( file ) );
+    }
+
+
+    private InputStream decompress( InputStream in ) throws IOException {
+        switch ( this ) {
+            case GZIP:
+                return new GZIPInputStream( in, READ_BUFFER_SIZE );
+            case SNAPPY:
+                return new SnappyFramedInputStream( in, true /* verifyChecksums */ );
+            default:
+                return in;
+        }
+    }
+}
@@ -1,38 +1,177 @@
 package eu.socialsensor.dataset;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import eu.socialsensor.main.BenchmarkingException;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 
 /**
+ * Shares loaded datasets between benchmarks. Datasets are keyed by a
+ * fingerprint of the file content, so a file that changed on disk is loaded
+ * again, and they are evicted least recently used first once their estimated
+ * heap size exceeds the memory budget. Values are also softly referenced, so
+ * the garbage collector may reclaim idle datasets before an OutOfMemoryError.
+ *
  * @author Alexander Patrikalakis
  */
 public class DatasetFactory {
 
-    private static DatasetFactory theInstance = null;
-    private final Map<File, Dataset> datasetMap;
+    private static final Logger logger = LogManager.getLogger();
+
+    // sampled blocks of the file that go into the fingerprint
+    private static final int FINGERPRINT_SAMPLES = 16;
+    private static final int FINGERPRINT_SAMPLE_SIZE = 1 << 16;
+
+    private volatile Cache<Key, Dataset> datasets;
 
 
     private DatasetFactory() {
-        datasetMap = new HashMap<>();
+        datasets = buildCache( Runtime.getRuntime().maxMemory() / 2 );
+    }
+
+
+    private static final class Holder {
+
+        private static final DatasetFactory INSTANCE = new DatasetFactory();
     }
 
 
     public static DatasetFactory getInstance() {
-        if ( theInstance == null ) {
-            theInstance = new DatasetFactory();
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Replaces the shared datasets with an empty cache limited to the given
+     * estimated heap size
+     */
+    public synchronized void setMemoryBudget( long bytes ) {
+        if ( bytes <= 0 ) {
+            throw new IllegalArgumentException( "the dataset memory budget must be positive" );
         }
-        return theInstance;
+        final Cache<Key, Dataset> previous = datasets;
+        datasets = buildCache( bytes );
+        previous.invalidateAll();
     }
 
 
-    public Dataset getDataset( File datasetFile ) {
-        if ( !datasetMap.containsKey( datasetFile ) ) {
-            datasetMap.put( datasetFile, new Dataset( datasetFile ) );
+    private static Cache<Key, Dataset> buildCache( long bytes ) {
+        // weights are in kilobytes to keep them within an int
+        return CacheBuilder.newBuilder()
+                .maximumWeight( Math.max( 1, bytes >> 10 ) )
+                .weigher( ( Key key, Dataset dataset ) -> (int) Math.min( Integer.MAX_VALUE, Math.max( 1, dataset.getHeapSize() >> 10 ) ) )
+                .softValues()
+                .removalListener( notification -> logger.info( "Evicted dataset {} ({})", notification.getKey(), notification.getCause() ) )
+                .build();
+    }
+
+
+    public Dataset getDataset( File datasetFile, DatasetMode mode ) {
+        if ( mode == DatasetMode.STREAMING ) {
+            // streaming datasets hold no data, there is nothing to share
+            return new StreamingDataset( datasetFile );
+        }
+        final Key key = new Key( datasetFile, mode, fingerprint( datasetFile ) );
+        // drop what was loaded from an earlier version of the same file
+        datasets.asMap().keySet().removeIf( k -> k.mode == mode && k.file.equals( datasetFile ) && !k.equals( key ) );
+        try {
+            return datasets.get( key, () -> {
+                logger.info( "Loading dataset {}", key );
+                final Dataset dataset = mode == DatasetMode.ARRAY ? new ArrayDataset( datasetFile ) : new MappedDataset( datasetFile );
+                // the weigher only runs on insertion, so the lazy node
+                // dictionary has to exist by then to be part of the weight
+                dataset.getNodes();
+                return dataset;
+            } );
+        } catch ( ExecutionException | UncheckedExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BenchmarkingException( "unable to load dataset " + datasetFile.getAbsolutePath(), e.getCause() );
         }
+    }
+
 
-        return datasetMap.get( datasetFile );
+    /**
+     * Hashes the length, modification time and evenly spaced samples of the
+     * content of a file. Reading only the samples keeps fingerprinting cheap
+     * for multi-gigabyte datasets.
+     */
+    static HashCode fingerprint( File file ) {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            final long size = channel.size();
+            final Hasher hasher = Hashing.murmur3_128().newHasher();
+            hasher.putLong( size ).putLong( file.lastModified() );
+
+            final ByteBuffer buffer = ByteBuffer.allocate( FINGERPRINT_SAMPLE_SIZE );
+            final long stride = Math.max( FINGERPRINT_SAMPLE_SIZE, size / FINGERPRINT_SAMPLES );
+            for ( long position = 0; position < size; position += stride ) {
+                buffer.clear();
+                // the last sample always covers the end of the file
+                final long start = position + stride >= size ? Math.max( position, size - FINGERPRINT_SAMPLE_SIZE ) : position;
+                while ( buffer.hasRemaining() && channel.read( buffer, start + buffer.position() ) > 0 ) {
+                    // fill the sample
+                }
+                buffer.flip();
+                hasher.putBytes( buffer );
+            }
+            return hasher.hash();
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to fingerprint dataset " + file.getAbsolutePath(), e );
+        }
+    }
+
+
+    private static final class Key {
+
+        private final File file;
+        private final DatasetMode mode;
+        private final HashCode fingerprint;
+
+
+        private Key( File file, DatasetMode mode, HashCode fingerprint ) {
+            this.file = file;
+            this.mode = mode;
+            this.fingerprint = fingerprint;
+        }
+
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mode == other.mode && fingerprint.equals( other.fingerprint );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash( mode, fingerprint );
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format( "%s [%s, %s]", file.getName(), mode, fingerprint );
+        }
     }
 }
@@ -0,0 +1,45 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Helpers shared by the preprocessing stages that derive dataset files from
+ * other dataset files.
+ */
+final class DatasetFiles {
+
+    private DatasetFiles() {
+    }
+
+
+    static boolean isUpToDate( File source, File derived ) {
+        return derived.isFile() && derived.lastModified() >= source.lastModified();
+    }
+
+
+    /**
+     * Writes one line of two tab-separated ints
+     */
+    static void writeLine( Writer out, int first, int second ) throws IOException {
+        out.write( Integer.toString( first ) );
+        out.write( '\t' );
+        out.write( Integer.toString( second ) );
+        out.write( '\n' );
+    }
+
+
+    static void moveIntoPlace( File tmpFile, File file ) {
+        try {
+            Files.move( tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to move file into place: " + file.getAbsolutePath(), e );
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * How the edges of a dataset are made available to the benchmarks.
+ */
+public enum DatasetMode {
+    /**
+     * Convert the text dataset to a binary edge list once and memory-map it
+     */
+    MAPPED,
+    /**
+     * Parse the text dataset once into primitive int arrays held on the heap
+     */
+    ARRAY,
+    /**
+     * Parse the text dataset on a background thread on every pass, using a
+     * constant amount of heap regardless of the dataset size
+     */
+    STREAMING
+}
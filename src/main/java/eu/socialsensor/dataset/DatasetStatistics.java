@@ -0,0 +1,239 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Summary statistics of a dataset, used to size the structures of database
+ * loaders up front. They are computed with one pass over the edges and kept
+ * in a properties file next to the dataset, so the pass runs only once per
+ * dataset file.
+ */
+public final class DatasetStatistics {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final String FILE_EXTENSION = ".stats";
+    private static final int VERSION = 1;
+
+    private final long nodeCount;
+    private final long edgeCount;
+    private final int minNodeId;
+    private final int maxNodeId;
+    private final int maxDegree;
+    private final long selfLoops;
+    private final long duplicateEdges;
+    // number of nodes with a degree in [2^i, 2^(i+1))
+    private final long[] degreeHistogram;
+
+
+    private DatasetStatistics( long nodeCount, long edgeCount, int minNodeId, int maxNodeId, int maxDegree, long selfLoops, long duplicateEdges, long[] degreeHistogram ) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.minNodeId = minNodeId;
+        this.maxNodeId = maxNodeId;
+        this.maxDegree = maxDegree;
+        this.selfLoops = selfLoops;
+        this.duplicateEdges = duplicateEdges;
+        this.degreeHistogram = degreeHistogram;
+    }
+
+
+    public static File getStatisticsFile( File datasetFile ) {
+        return new File( datasetFile.getAbsolutePath() + FILE_EXTENSION );
+    }
+
+
+    /**
+     * Reads the statistics of the dataset from its sidecar file, or computes
+     * and writes them if the sidecar is missing or older than the dataset.
+     */
+    static DatasetStatistics forDataset( Dataset dataset ) {
+        final File datasetFile = dataset.getDatasetFile();
+        final File statisticsFile = getStatisticsFile( datasetFile );
+        if ( statisticsFile.isFile() && statisticsFile.lastModified() >= datasetFile.lastModified() ) {
+            final DatasetStatistics statistics = read( statisticsFile );
+            if ( statistics != null ) {
+                return statistics;
+            }
+        }
+        if ( !dataset.canComputeStatistics() ) {
+            throw new BenchmarkingException( String.format( "statistics file %s is missing or older than the dataset, compute it once in %s or %s dataset mode",
+                    statisticsFile.getAbsolutePath(), DatasetMode.MAPPED, DatasetMode.ARRAY ) );
+        }
+        logger.info( "Computing statistics of {}", datasetFile.getAbsolutePath() );
+        final DatasetStatistics statistics = compute( dataset );
+        statistics.write( statisticsFile );
+        return statistics;
+    }
+
+
+    static DatasetStatistics compute( Dataset dataset ) {
+        final int[] nodes = dataset.getNodes();
+        final int[] degrees = new int[nodes.length];
+        long[] pairs = new long[1 << 16];
+        long edgeCount = 0;
+        long selfLoops = 0;
+        try ( EdgeCursor cursor = dataset.cursor() ) {
+            while ( cursor.next() ) {
+                final int source = cursor.getSource();
+                final int destination = cursor.getDestination();
+                degrees[Arrays.binarySearch( nodes, source )]++;
+                degrees[Arrays.binarySearch( nodes, destination )]++;
+                if ( source == destination ) {
+                    selfLoops++;
+                }
+                if ( edgeCount == pairs.length ) {
+                    if ( pairs.length >= Integer.MAX_VALUE / 2 ) {
+                        throw new IllegalStateException( "too many edges to compute statistics" );
+                    }
+                    pairs = Arrays.copyOf( pairs, 2 * pairs.length );
+                }
+                pairs[(int) edgeCount++] = ((long) source << 32) | (destination & 0xffffffffL);
+            }
+        }
+
+        Arrays.parallelSort( pairs, 0, (int) edgeCount );
+        long duplicateEdges = 0;
+        for ( int i = 1; i < edgeCount; i++ ) {
+            if ( pairs[i] == pairs[i - 1] ) {
+                duplicateEdges++;
+            }
+        }
+
+        int maxDegree = 0;
+        final long[] histogram = new long[Integer.SIZE];
+        int buckets = 0;
+        for ( int degree : degrees ) {
+            maxDegree = Math.max( maxDegree, degree );
+            final int bucket = Integer.SIZE - 1 - Integer.numberOfLeadingZeros( degree );
+            histogram[bucket]++;
+            buckets = Math.max( buckets, bucket + 1 );
+        }
+
+        return new DatasetStatistics( nodes.length, edgeCount, nodes.length == 0 ? 0 : nodes[0], nodes.length == 0 ? 0 : nodes[nodes.length - 1], maxDegree, selfLoops, duplicateEdges, Arrays.copyOf( histogram, buckets ) );
+    }
+
+
+    private static DatasetStatistics read( File statisticsFile ) {
+        final Properties properties = new Properties();
+        try ( InputStream in = new FileInputStream( statisticsFile ) ) {
+            properties.load( in );
+            if ( Integer.parseInt( properties.getProperty( "version", "0" ) ) != VERSION ) {
+                return null;
+            }
+            final String[] buckets = properties.getProperty( "degree-histogram" ).split( "," );
+            final long[] histogram = new long[buckets[0].isEmpty() ? 0 : buckets.length];
+            for ( int i = 0; i < histogram.length; i++ ) {
+                histogram[i] = Long.parseLong( buckets[i] );
+            }
+            return new DatasetStatistics(
+                    Long.parseLong( properties.getProperty( "nodes" ) ),
+                    Long.parseLong( properties.getProperty( "edges" ) ),
+                    Integer.parseInt( properties.getProperty( "min-node-id" ) ),
+                    Integer.parseInt( properties.getProperty( "max-node-id" ) ),
+                    Integer.parseInt( properties.getProperty( "max-degree" ) ),
+                    Long.parseLong( properties.getProperty( "self-loops" ) ),
+                    Long.parseLong( properties.getProperty( "duplicate-edges" ) ),
+                    histogram );
+        } catch ( IOException | RuntimeException e ) {
+            logger.warn( "Ignoring unreadable statistics file {}: {}", statisticsFile.getAbsolutePath(), e.getMessage() );
+            return null;
+        }
+    }
+
+
+    private void write( File statisticsFile ) {
+        final Properties properties = new Properties();
+        properties.setProperty( "version", Integer.toString( VERSION ) );
+        properties.setProperty( "nodes", Long.toString( nodeCount ) );
+        properties.setProperty( "edges", Long.toString( edgeCount ) );
+        properties.setProperty( "min-node-id", Integer.toString( minNodeId ) );
+        properties.setProperty( "max-node-id", Integer.toString( maxNodeId ) );
+        properties.setProperty( "max-degree", Integer.toString( maxDegree ) );
+        properties.setProperty( "average-degree", Double.toString( getAverageDegree() ) );
+        properties.setProperty( "self-loops", Long.toString( selfLoops ) );
+        properties.setProperty( "duplicate-edges", Long.toString( duplicateEdges ) );
+        final StringBuilder histogram = new StringBuilder();
+        for ( int i = 0; i < degreeHistogram.length; i++ ) {
+            histogram.append( i == 0 ? "" : "," ).append( degreeHistogram[i] );
+        }
+        properties.setProperty( "degree-histogram", histogram.toString() );
+
+        try ( OutputStream out = new FileOutputStream( statisticsFile ) ) {
+            properties.store( out, "statistics of " + statisticsFile.getName().replace( FILE_EXTENSION, "" ) );
+        } catch ( IOException e ) {
+            // the statistics are still usable, they are just computed again next time
+            logger.warn( "Unable to write statistics file {}: {}", statisticsFile.getAbsolutePath(), e.getMessage() );
+        }
+    }
+
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+
+    public int getMinNodeId() {
+        return minNodeId;
+    }
+
+
+    public int getMaxNodeId() {
+        return maxNodeId;
+    }
+
+
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+
+    /**
+     * @return the average number of edge endpoints per node
+     */
+    public double getAverageDegree() {
+        return nodeCount == 0 ? 0 : 2.0 * edgeCount / nodeCount;
+    }
+
+
+    public long getSelfLoops() {
+        return selfLoops;
+    }
+
+
+    public long getDuplicateEdges() {
+        return duplicateEdges;
+    }
+
+
+    /**
+     * @return the number of nodes with a degree in [2^i, 2^(i+1)) at index i
+     */
+    public long[] getDegreeHistogram() {
+        return degreeHistogram.clone();
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format( "%d nodes, %d edges, node ids %d to %d, degree max %d avg %.2f, %d self-loops, %d duplicate edges",
+                nodeCount, edgeCount, minNodeId, maxNodeId, maxDegree, getAverageDegree(), selfLoops, duplicateEdges );
+    }
+}
@@ -0,0 +1,123 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Input stream that reads a decompressing stream on a dedicated thread, so
+ * decompression overlaps with parsing. Blocks of decompressed bytes are handed
+ * over through a bounded queue and recycled once consumed.
+ */
+final class DecompressingInputStream extends InputStream implements Runnable {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int QUEUED_BLOCKS = 4;
+
+    // marks the end of the input in the queue of filled blocks
+    private final ByteBuffer endOfData = ByteBuffer.allocate( 0 );
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>( QUEUED_BLOCKS );
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>( QUEUED_BLOCKS + 2 );
+    private final InputStream decompressor;
+    private final Thread thread;
+    private volatile Exception failure = null;
+
+    private ByteBuffer current = null;
+
+
+    DecompressingInputStream( String name, InputStream decompressor ) {
+        this.decompressor = decompressor;
+        // one block being filled, the queued ones and one being consumed
+        for ( int i = 0; i < QUEUED_BLOCKS + 2; i++ ) {
+            free.add( ByteBuffer.allocate( BLOCK_SIZE ) );
+        }
+        thread = new Thread( this, "dataset-decompressor-" + name );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read( b, 0, 1 ) < 0 ? -1 : b[0] & 0xff;
+    }
+
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+        if ( len == 0 ) {
+            return 0;
+        }
+        if ( current == null || (current != endOfData && !current.hasRemaining()) ) {
+            if ( current != null ) {
+                current.clear();
+                free.add( current );
+            }
+            try {
+                current = filled.take();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IOException( "interrupted while waiting for decompressed data", e );
+            }
+        }
+        if ( current == endOfData ) {
+            if ( failure != null ) {
+                throw new IOException( "unable to decompress dataset", failure );
+            }
+            return -1;
+        }
+        final int n = Math.min( len, current.remaining() );
+        current.get( b, off, n );
+        return n;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    @Override
+    public void run() {
+        try ( InputStream in = decompressor ) {
+            while ( true ) {
+                final ByteBuffer block = free.take();
+                final byte[] array = block.array();
+                int size = 0;
+                int read = 0;
+                while ( size < array.length && (read = in.read( array, size, array.length - size )) >= 0 ) {
+                    size += read;
+                }
+                if ( size > 0 ) {
+                    block.limit( size );
+                    filled.put( block );
+                }
+                if ( read < 0 ) {
+                    break;
+                }
+            }
+        } catch ( InterruptedException e ) {
+            // the consumer closed the stream
+            return;
+        } catch ( IOException | RuntimeException e ) {
+            failure = e;
+        }
+
+        try {
+            filled.put( endOfData );
+        } catch ( InterruptedException e ) {
+            // the consumer closed the stream
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package eu.socialsensor.dataset;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Growable pair of primitive arrays holding the source and destination ids of
+ * a sequence of edges.
+ */
+public final class EdgeArrays {
+
+    private int[] sources;
+    private int[] destinations;
+    private int size = 0;
+
+
+    public EdgeArrays( int initialCapacity ) {
+        sources = new int[Math.max( initialCapacity, 16 )];
+        destinations = new int[sources.length];
+    }
+
+
+    public void add( int source, int destination ) {
+        if ( size == sources.length ) {
+            final int capacity = sources.length + (sources.length >> 1);
+            sources = Arrays.copyOf( sources, capacity );
+            destinations = Arrays.copyOf( destinations, capacity );
+        }
+        sources[size] = source;
+        destinations[size] = destination;
+        size++;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public int getSource( int index ) {
+        return sources[index];
+    }
+
+
+    public int getDestination( int index ) {
+        return destinations[index];
+    }
+
+
+    /**
+     * Concatenates chunks in the given order into a single exactly-sized
+     * instance.
+     */
+    public static EdgeArrays concat( List<EdgeArrays> chunks ) {
+        long total = 0;
+        for ( EdgeArrays chunk : chunks ) {
+            total += chunk.size;
+        }
+        if ( total > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "too many edges to hold in arrays: " + total );
+        }
+        final EdgeArrays result = new EdgeArrays( (int) total );
+        for ( EdgeArrays chunk : chunks ) {
+            System.arraycopy( chunk.sources, 0, result.sources, result.size, chunk.size );
+            System.arraycopy( chunk.destinations, 0, result.destinations, result.size, chunk.size );
+            result.size += chunk.size;
+        }
+        return result;
+    }
+}
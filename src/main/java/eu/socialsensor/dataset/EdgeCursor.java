@@ -0,0 +1,30 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * Forward-only cursor over the edges of a {@link Dataset}. Implementations
+ * keep the current edge in primitive fields, so advancing the cursor does not
+ * allocate. Cursors must be closed to release background resources.
+ */
+public interface EdgeCursor extends AutoCloseable {
+
+    /**
+     * Moves the cursor to the next edge
+     *
+     * @return false if there are no more edges
+     */
+    boolean next();
+
+    /**
+     * @return the source node id of the current edge
+     */
+    int getSource();
+
+    /**
+     * @return the destination node id of the current edge
+     */
+    int getDestination();
+
+    @Override
+    void close();
+}
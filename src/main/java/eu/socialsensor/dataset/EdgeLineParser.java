@@ -0,0 +1,102 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * Byte-level state machine that recognizes edge lines of a tabulated dataset
+ * without creating any strings. A line holds at least two non-negative
+ * integer columns separated by tabs or spaces; further columns are ignored.
+ * Blank lines and comment lines starting with '#' or '%' (SNAP and LFR
+ * headers) are skipped.
+ */
+final class EdgeLineParser {
+
+    private int column = 0;
+    private int value = 0;
+    private boolean inNumber = false;
+    private boolean inComment = false;
+    private int source;
+    private int destination;
+    private long lineNumber = 1;
+
+
+    /**
+     * @return true if the byte completed an edge, which is then available via
+     * {@link #getSource()} and {@link #getDestination()}
+     */
+    boolean accept( byte b ) {
+        if ( b == '\n' ) {
+            return endOfLine();
+        }
+        if ( inComment ) {
+            return false;
+        }
+        if ( b >= '0' && b <= '9' ) {
+            final int digit = b - '0';
+            if ( inNumber ) {
+                if ( value > (Integer.MAX_VALUE - digit) / 10 ) {
+                    throw new IllegalArgumentException( "node id out of range on line " + lineNumber );
+                }
+                value = value * 10 + digit;
+            } else {
+                value = digit;
+                inNumber = true;
+            }
+        } else if ( b == '\t' || b == ' ' || b == '\r' ) {
+            if ( inNumber ) {
+                endOfColumn();
+            }
+        } else if ( (b == '#' || b == '%') && column == 0 && !inNumber ) {
+            inComment = true;
+        } else {
+            throw new IllegalArgumentException( String.format( "unexpected character '%c' on line %d", (char) b, lineNumber ) );
+        }
+        return false;
+    }
+
+
+    /**
+     * Ends the input. A last line without a trailing newline is still
+     * recognized.
+     *
+     * @return true if the input ended with an edge
+     */
+    boolean endOfInput() {
+        return endOfLine();
+    }
+
+
+    private boolean endOfLine() {
+        if ( inNumber ) {
+            endOfColumn();
+        }
+        final boolean edge = column >= 2;
+        if ( column == 1 ) {
+            throw new IllegalArgumentException( "missing destination on line " + lineNumber );
+        }
+        column = 0;
+        inComment = false;
+        lineNumber++;
+        return edge;
+    }
+
+
+    private void endOfColumn() {
+        if ( column == 0 ) {
+            source = value;
+        } else if ( column == 1 ) {
+            destination = value;
+        }
+        column++;
+        inNumber = false;
+    }
+
+
+    int getSource() {
+        return source;
+    }
+
+
+    int getDestination() {
+        return destination;
+    }
+}
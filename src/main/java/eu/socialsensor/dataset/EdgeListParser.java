@@ -0,0 +1,198 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Parallel parser for tabulated edge lists. The file is split into byte ranges
+ * that start and end at line boundaries, and every range is parsed on the
+ * fork-join pool straight from bytes into primitive arrays. Compressed files
+ * cannot be split and are parsed serially while a background thread
+ * decompresses them.
+ */
+public class EdgeListParser {
+
+    private static final long MIN_CHUNK_SIZE = 1L << 22;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int EDGES_PER_SERIAL_CHUNK = 1 << 20;
+
+
+    /**
+     * Receives parsed chunks in file order
+     */
+    public interface ChunkConsumer {
+
+        void accept( EdgeArrays chunk ) throws IOException;
+    }
+
+
+    /**
+     * Parses the whole file into memory
+     */
+    public static EdgeArrays parse( File file ) {
+        final List<EdgeArrays> chunks = new ArrayList<>();
+        parse( file, chunks::add );
+        return EdgeArrays.concat( chunks );
+    }
+
+
+    /**
+     * Parses the file in parallel and hands the chunks to the consumer in file
+     * order. Only a bounded number of chunks is parsed ahead of the consumer.
+     */
+    public static void parse( File file, ChunkConsumer consumer ) {
+        if ( DatasetCompression.forFile( file ) != DatasetCompression.NONE ) {
+            parseSerially( file, consumer );
+            return;
+        }
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            final long[] boundaries = findLineBoundaries( channel, pool.getParallelism() * CHUNKS_PER_THREAD );
+            final int window = 2 * pool.getParallelism();
+            final Deque<ForkJoinTask<EdgeArrays>> inFlight = new ArrayDeque<>( window );
+            int next = 0;
+            while ( next < boundaries.length - 1 || !inFlight.isEmpty() ) {
+                while ( next < boundaries.length - 1 && inFlight.size() < window ) {
+                    inFlight.addLast( pool.submit( new ChunkTask( channel, boundaries[next], boundaries[next + 1] ) ) );
+                    next++;
+                }
+                consumer.accept( inFlight.removeFirst().join() );
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to parse " + file.getAbsolutePath(), e );
+        }
+    }
+
+
+    private static void parseSerially( File file, ChunkConsumer consumer ) {
+        try ( InputStream in = DatasetCompression.openStream( file ) ) {
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+            final EdgeLineParser parser = new EdgeLineParser();
+            EdgeArrays chunk = new EdgeArrays( EDGES_PER_SERIAL_CHUNK );
+            int read;
+            while ( (read = in.read( buffer )) >= 0 ) {
+                for ( int i = 0; i < read; i++ ) {
+                    if ( parser.accept( buffer[i] ) ) {
+                        chunk.add( parser.getSource(), parser.getDestination() );
+                        if ( chunk.size() == EDGES_PER_SERIAL_CHUNK ) {
+                            consumer.accept( chunk );
+                            chunk = new EdgeArrays( EDGES_PER_SERIAL_CHUNK );
+                        }
+                    }
+                }
+            }
+            if ( parser.endOfInput() ) {
+                chunk.add( parser.getSource(), parser.getDestination() );
+            }
+            if ( chunk.size() > 0 ) {
+                consumer.accept( chunk );
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to parse " + file.getAbsolutePath(), e );
+        } catch ( IllegalArgumentException e ) {
+            throw new BenchmarkingException( "malformed data in " + file.getAbsolutePath() + ": " + e.getMessage(), e );
+        }
+    }
+
+
+    /**
+     * Splits the file into roughly equal ranges, moving every split point to
+     * the start of the following line.
+     *
+     * @return the ascending range boundaries, starting with 0 and ending with
+     * the file size
+     */
+    private static long[] findLineBoundaries( FileChannel channel, int maxChunks ) throws IOException {
+        final long size = channel.size();
+        final int chunks = (int) Math.max( 1, Math.min( maxChunks, size / MIN_CHUNK_SIZE ) );
+        final long[] boundaries = new long[chunks + 1];
+        final ByteBuffer buffer = ByteBuffer.allocate( READ_BUFFER_SIZE );
+        boundaries[chunks] = size;
+        for ( int i = 1; i < chunks; i++ ) {
+            long position = Math.max( size / chunks * i, boundaries[i - 1] );
+            boolean found = false;
+            while ( !found && position < size ) {
+                buffer.clear();
+                final int read = channel.read( buffer, position );
+                for ( int j = 0; j < read && !found; j++ ) {
+                    if ( buffer.get( j ) == '\n' ) {
+                        position += j + 1;
+                        found = true;
+                    }
+                }
+                if ( !found ) {
+                    position += Math.max( read, 0 );
+                }
+            }
+            boundaries[i] = Math.min( position, size );
+        }
+        return boundaries;
+    }
+
+
+    private static final class ChunkTask extends RecursiveTask<EdgeArrays> {
+
+        private static final long serialVersionUID = 6217404125376470921L;
+        // typical SNAP lines are about 12 bytes long
+        private static final int ESTIMATED_BYTES_PER_LINE = 12;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+
+        private ChunkTask( FileChannel channel, long start, long end ) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+
+        @Override
+        protected EdgeArrays compute() {
+            final EdgeArrays edges = new EdgeArrays( (int) Math.min( Integer.MAX_VALUE - 8, (end - start) / ESTIMATED_BYTES_PER_LINE ) );
+            final EdgeLineParser parser = new EdgeLineParser();
+            final ByteBuffer buffer = ByteBuffer.allocate( READ_BUFFER_SIZE );
+            long position = start;
+            try {
+                while ( position < end ) {
+                    buffer.clear();
+                    buffer.limit( (int) Math.min( buffer.capacity(), end - position ) );
+                    final int read = channel.read( buffer, position );
+                    if ( read < 0 ) {
+                        break;
+                    }
+                    for ( int i = 0; i < read; i++ ) {
+                        if ( parser.accept( buffer.get( i ) ) ) {
+                            edges.add( parser.getSource(), parser.getDestination() );
+                        }
+                    }
+                    position += read;
+                }
+            } catch ( IOException e ) {
+                throw new BenchmarkingException( "unable to read bytes " + start + " to " + end, e );
+            } catch ( IllegalArgumentException e ) {
+                throw new BenchmarkingException( "malformed data in bytes " + start + " to " + end + ": " + e.getMessage(), e );
+            }
+            if ( parser.endOfInput() ) {
+                edges.add( parser.getSource(), parser.getDestination() );
+            }
+            return edges;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * A synthetic dataset written to disk in the tabulated format of the LFR
+ * benchmark files: one "source\tdestination" line per edge and, for
+ * generators with ground truth, one "node\tcommunity" line per node. The
+ * file names encode all parameters, so an existing file is reused instead of
+ * generated again.
+ */
+public class GeneratedDataset {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final GeneratorType type;
+    private final int nodes;
+    private final int averageDegree;
+    private final long seed;
+    private final File directory;
+
+
+    public GeneratedDataset( GeneratorType type, int nodes, int averageDegree, long seed, File directory ) {
+        this.type = type;
+        this.nodes = nodes;
+        this.averageDegree = averageDegree;
+        this.seed = seed;
+        this.directory = directory;
+    }
+
+
+    public File getEdgeFile() {
+        return new File( directory, String.format( "%s-%d-%d-%d.txt", type.name().toLowerCase(), nodes, averageDegree, seed ) );
+    }
+
+
+    /**
+     * @return the ground-truth community file, or null if the generator does
+     * not plant communities
+     */
+    public File getCommunityFile() {
+        if ( !type.hasCommunities() ) {
+            return null;
+        }
+        return new File( directory, String.format( "%s-%d-%d-%d-communities.txt", type.name().toLowerCase(), nodes, averageDegree, seed ) );
+    }
+
+
+    /**
+     * Generates the dataset unless its files already exist. The files are
+     * written under temporary names and moved into place once complete.
+     */
+    public void ensureGenerated() {
+        final File edgeFile = getEdgeFile();
+        final File communityFile = getCommunityFile();
+        if ( edgeFile.isFile() && (communityFile == null || communityFile.isFile()) ) {
+            return;
+        }
+        if ( !directory.exists() && !directory.mkdirs() ) {
+            throw new BenchmarkingException( "unable to create directory " + directory.getAbsolutePath() );
+        }
+
+        logger.info( "Generating {} graph with {} nodes and average degree {} (seed {}) into {}", type, nodes, averageDegree, seed, edgeFile.getAbsolutePath() );
+        final File edgeTmp = new File( edgeFile.getAbsolutePath() + ".tmp" );
+        final File communityTmp = communityFile == null ? null : new File( communityFile.getAbsolutePath() + ".tmp" );
+        final long[] edges = new long[1];
+        try ( Writer edgeOut = new BufferedWriter( new FileWriter( edgeTmp ), WRITE_BUFFER_SIZE );
+              Writer communityOut = communityTmp == null ? null : new BufferedWriter( new FileWriter( communityTmp ), WRITE_BUFFER_SIZE ) ) {
+            type.create( nodes, averageDegree, seed ).generate( new GraphSink() {
+
+                @Override
+                public void edge( int source, int destination ) throws IOException {
+                    DatasetFiles.writeLine( edgeOut, source, destination );
+                    edges[0]++;
+                }
+
+
+                @Override
+                public void community( int node, int community ) throws IOException {
+                    DatasetFiles.writeLine( communityOut, node, community );
+                }
+            } );
+        } catch ( IOException e ) {
+            edgeTmp.delete();
+            if ( communityTmp != null ) {
+                communityTmp.delete();
+            }
+            throw new BenchmarkingException( "unable to generate dataset " + edgeFile.getAbsolutePath(), e );
+        }
+
+        if ( communityTmp != null ) {
+            DatasetFiles.moveIntoPlace( communityTmp, communityFile );
+        }
+        // the edge file last, its presence marks a complete dataset
+        DatasetFiles.moveIntoPlace( edgeTmp, edgeFile );
+        logger.info( "Wrote {} edges to {}", edges[0], edgeFile.getAbsolutePath() );
+    }
+
+
+    /**
+     * Generates a dataset ahead of a benchmark session.
+     *
+     * @param args generator type, node count, average degree, seed and output
+     * directory
+     */
+    public static void main( String[] args ) {
+        if ( args.length != 5 ) {
+            throw new IllegalArgumentException( "usage: GeneratedDataset <RMAT|BARABASI_ALBERT|LFR> <nodes> <average degree> <seed> <directory>" );
+        }
+        new GeneratedDataset( GeneratorType.valueOf( args[0] ), Integer.parseInt( args[1] ), Integer.parseInt( args[2] ), Long.parseLong( args[3] ), new File( args[4] ) ).ensureGenerated();
+    }
+}
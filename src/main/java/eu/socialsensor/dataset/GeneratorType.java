@@ -0,0 +1,43 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * The built-in synthetic graph generators.
+ */
+public enum GeneratorType {
+    /**
+     * Recursive matrix graph with a skewed degree distribution
+     */
+    RMAT,
+    /**
+     * Preferential attachment graph with a power-law degree distribution
+     */
+    BARABASI_ALBERT,
+    /**
+     * Planted communities in the style of the LFR benchmark, with a
+     * ground-truth community file for the clustering workload
+     */
+    LFR;
+
+
+    /**
+     * @return true if the generator assigns ground-truth communities
+     */
+    public boolean hasCommunities() {
+        return this == LFR;
+    }
+
+
+    public GraphGenerator create( int nodes, int averageDegree, long seed ) {
+        switch ( this ) {
+            case RMAT:
+                return new RmatGenerator( nodes, averageDegree, seed );
+            case BARABASI_ALBERT:
+                return new BarabasiAlbertGenerator( nodes, averageDegree, seed );
+            case LFR:
+                return new LfrGenerator( nodes, averageDegree, seed );
+            default:
+                throw new IllegalArgumentException( "unsupported generator " + this );
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+
+/**
+ * Deterministic synthetic graph generator. The same parameters and seed always
+ * produce the same graph. Edges are streamed to a {@link GraphSink} rather
+ * than collected, so only per-node state is held in memory. Node ids start at
+ * 1.
+ */
+public abstract class GraphGenerator {
+
+    protected final int nodes;
+    protected final int averageDegree;
+    protected final SplittableRandom random;
+
+
+    protected GraphGenerator( int nodes, int averageDegree, long seed ) {
+        if ( nodes < 2 ) {
+            throw new IllegalArgumentException( "a generated graph needs at least two nodes" );
+        }
+        if ( averageDegree < 2 || averageDegree >= nodes ) {
+            throw new IllegalArgumentException( String.format( "average degree must be in [2, %d)", nodes ) );
+        }
+        this.nodes = nodes;
+        this.averageDegree = averageDegree;
+        this.random = new SplittableRandom( seed );
+    }
+
+
+    public abstract void generate( GraphSink sink ) throws IOException;
+
+
+    /**
+     * Samples a continuous power law with the given exponent, truncated to
+     * [min, max]
+     */
+    protected static double powerLaw( SplittableRandom random, double exponent, double min, double max ) {
+        final double u = random.nextDouble();
+        if ( exponent == 1 ) {
+            return min * Math.pow( max / min, u );
+        }
+        final double e = 1 - exponent;
+        return Math.pow( (Math.pow( max, e ) - Math.pow( min, e )) * u + Math.pow( min, e ), 1 / e );
+    }
+}
@@ -0,0 +1,19 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+
+
+/**
+ * Receives the output of a {@link GraphGenerator} as it is produced.
+ */
+public interface GraphSink {
+
+    void edge( int source, int destination ) throws IOException;
+
+    /**
+     * Assigns a node to its ground-truth community. Community numbers start
+     * at 1, as in the LFR benchmark files.
+     */
+    void community( int node, int community ) throws IOException;
+}
@@ -0,0 +1,118 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+
+
+/**
+ * Planted-community generator in the style of the LFR benchmark. Node degrees
+ * and community sizes follow truncated power laws, and every node keeps a
+ * fraction 1 - mu of its edges inside its own community. Unlike LFR, edges are
+ * drawn at random instead of by rewiring a configuration model, so the degree
+ * sequence is only matched on average; in exchange the generator streams with
+ * a few ints of state per node.
+ */
+public class LfrGenerator extends GraphGenerator {
+
+    private static final double DEGREE_EXPONENT = 2;
+    private static final double COMMUNITY_SIZE_EXPONENT = 1;
+    private static final double MIXING = 0.1;
+    private static final int MIN_COMMUNITY_SIZE = 20;
+    private static final int MAX_COMMUNITY_SIZE = 1000;
+
+    private final int maxDegree;
+
+
+    public LfrGenerator( int nodes, int averageDegree, long seed ) {
+        super( nodes, averageDegree, seed );
+        this.maxDegree = Math.min( nodes - 1, Math.max( averageDegree, Math.min( 50 * averageDegree, MAX_COMMUNITY_SIZE - 1 ) ) );
+    }
+
+
+    @Override
+    public void generate( GraphSink sink ) throws IOException {
+        // a random labelling, so community members are not contiguous ids
+        final int[] labels = new int[nodes];
+        for ( int i = 0; i < nodes; i++ ) {
+            labels[i] = i + 1;
+        }
+        for ( int i = nodes - 1; i > 0; i-- ) {
+            final int j = random.nextInt( i + 1 );
+            final int tmp = labels[i];
+            labels[i] = labels[j];
+            labels[j] = tmp;
+        }
+
+        final double minDegree = findMinDegree();
+        final int maxCommunitySize = Math.min( nodes, MAX_COMMUNITY_SIZE );
+        final int minCommunitySize = Math.min( MIN_COMMUNITY_SIZE, maxCommunitySize );
+        int community = 0;
+        for ( int start = 0; start < nodes; ) {
+            int size = (int) Math.round( powerLaw( random, COMMUNITY_SIZE_EXPONENT, minCommunitySize, maxCommunitySize ) );
+            if ( nodes - start - size < minCommunitySize ) {
+                // fold a too small remainder into the last community
+                size = nodes - start;
+            }
+            community++;
+            for ( int i = start; i < start + size; i++ ) {
+                sink.community( labels[i], community );
+            }
+            for ( int i = start; i < start + size; i++ ) {
+                final double degree = powerLaw( random, DEGREE_EXPONENT, minDegree, maxDegree );
+                // every node starts half of its edges, the other half is started by its neighbours
+                final int internal = stochasticRound( (1 - MIXING) * degree / 2 );
+                final int external = stochasticRound( MIXING * degree / 2 );
+                for ( int e = 0; e < internal && size > 1; e++ ) {
+                    int other = start + random.nextInt( size - 1 );
+                    if ( other >= i ) {
+                        other++;
+                    }
+                    sink.edge( labels[i], labels[other] );
+                }
+                for ( int e = 0; e < external && size < nodes; e++ ) {
+                    int other = random.nextInt( nodes - size );
+                    if ( other >= start ) {
+                        other += size;
+                    }
+                    sink.edge( labels[i], labels[other] );
+                }
+            }
+            start += size;
+        }
+    }
+
+
+    private int stochasticRound( double value ) {
+        final int floor = (int) value;
+        return random.nextDouble() < value - floor ? floor + 1 : floor;
+    }
+
+
+    /**
+     * Bisects the lower degree bound for which the truncated power law has the
+     * requested average degree
+     */
+    private double findMinDegree() {
+        double low = 1;
+        double high = averageDegree;
+        for ( int i = 0; i < 64; i++ ) {
+            final double mid = (low + high) / 2;
+            if ( powerLawMean( DEGREE_EXPONENT, mid, maxDegree ) < averageDegree ) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+
+    private static double powerLawMean( double exponent, double min, double max ) {
+        if ( exponent == 2 ) {
+            return Math.log( max / min ) / (1 / min - 1 / max);
+        }
+        final double e1 = 1 - exponent;
+        final double e2 = 2 - exponent;
+        return (e1 / e2) * (Math.pow( max, e2 ) - Math.pow( min, e2 )) / (Math.pow( max, e1 ) - Math.pow( min, e1 ));
+    }
+}
@@ -0,0 +1,35 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.File;
+
+
+/**
+ * A dataset backed by a memory-mapped {@link BinaryEdgeList}. The binary file
+ * is created from the text dataset on first use and reused afterwards.
+ */
+public class MappedDataset extends Dataset {
+
+    private final BinaryEdgeList edges;
+
+
+    public MappedDataset( File datasetFile ) {
+        super( datasetFile );
+        final File binaryFile = BinaryEdgeList.getBinaryFile( datasetFile );
+        if ( !BinaryEdgeList.isUpToDate( datasetFile, binaryFile ) ) {
+            BinaryEdgeList.convert( datasetFile, binaryFile );
+        }
+        edges = BinaryEdgeList.open( binaryFile );
+    }
+
+
+    public long getEdgeCount() {
+        return edges.getEdgeCount();
+    }
+
+
+    @Override
+    public EdgeCursor cursor() {
+        return edges.cursor();
+    }
+}
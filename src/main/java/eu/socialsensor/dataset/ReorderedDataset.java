@@ -0,0 +1,292 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * A copy of a dataset with its vertices relabeled 1..n in a given
+ * {@link VertexOrder} and its edges sorted by the new labels. The copy and a
+ * mapping file with one "original\trelabeled" line per vertex are written
+ * next to the dataset and reused while they are newer than it. Community
+ * files are remapped through the mapping so they stay consistent with the
+ * relabeled dataset.
+ */
+public class ReorderedDataset {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int LABEL_PROPAGATION_ROUNDS = 10;
+
+    private final File datasetFile;
+    private final VertexOrder order;
+
+
+    public ReorderedDataset( File datasetFile, VertexOrder order ) {
+        this.datasetFile = datasetFile;
+        this.order = order;
+    }
+
+
+    public File getEdgeFile() {
+        return derivedFile( datasetFile, ".txt" );
+    }
+
+
+    public File getMappingFile() {
+        return derivedFile( datasetFile, ".map" );
+    }
+
+
+    private File derivedFile( File file, String extension ) {
+        return new File( file.getAbsolutePath() + "." + order.name().toLowerCase() + extension );
+    }
+
+
+    /**
+     * Writes the reordered dataset and its mapping unless they are up to date
+     */
+    public void ensureReordered() {
+        final File edgeFile = getEdgeFile();
+        final File mappingFile = getMappingFile();
+        if ( DatasetFiles.isUpToDate( datasetFile, edgeFile ) && DatasetFiles.isUpToDate( datasetFile, mappingFile ) ) {
+            return;
+        }
+
+        logger.info( "Reordering {} in {} order", datasetFile.getAbsolutePath(), order );
+        final EdgeArrays edges = EdgeListParser.parse( datasetFile );
+        final int[] ids = new int[2 * edges.size()];
+        for ( int i = 0; i < edges.size(); i++ ) {
+            ids[2 * i] = edges.getSource( i );
+            ids[2 * i + 1] = edges.getDestination( i );
+        }
+        final int[] nodes = Dataset.sortedDistinct( ids, ids.length );
+
+        // dense ids 0..n-1 are the positions in the node dictionary
+        final int[] sources = new int[edges.size()];
+        final int[] destinations = new int[edges.size()];
+        for ( int i = 0; i < edges.size(); i++ ) {
+            sources[i] = Arrays.binarySearch( nodes, edges.getSource( i ) );
+            destinations[i] = Arrays.binarySearch( nodes, edges.getDestination( i ) );
+        }
+
+        final int[] ranks = rank( nodes.length, sources, destinations );
+        final long[] relabeled = new long[sources.length];
+        for ( int i = 0; i < sources.length; i++ ) {
+            relabeled[i] = ((long) (ranks[sources[i]] + 1) << 32) | (ranks[destinations[i]] + 1);
+        }
+        Arrays.parallelSort( relabeled );
+
+        final File edgeTmp = new File( edgeFile.getAbsolutePath() + ".tmp" );
+        final File mappingTmp = new File( mappingFile.getAbsolutePath() + ".tmp" );
+        try ( Writer edgeOut = new BufferedWriter( new FileWriter( edgeTmp ), WRITE_BUFFER_SIZE );
+              Writer mappingOut = new BufferedWriter( new FileWriter( mappingTmp ), WRITE_BUFFER_SIZE ) ) {
+            for ( long edge : relabeled ) {
+                DatasetFiles.writeLine( edgeOut, (int) (edge >>> 32), (int) edge );
+            }
+            for ( int i = 0; i < nodes.length; i++ ) {
+                DatasetFiles.writeLine( mappingOut, nodes[i], ranks[i] + 1 );
+            }
+        } catch ( IOException e ) {
+            edgeTmp.delete();
+            mappingTmp.delete();
+            throw new BenchmarkingException( "unable to write reordered dataset " + edgeFile.getAbsolutePath(), e );
+        }
+        DatasetFiles.moveIntoPlace( mappingTmp, mappingFile );
+        DatasetFiles.moveIntoPlace( edgeTmp, edgeFile );
+    }
+
+
+    /**
+     * Writes a copy of a community file with its nodes relabeled like the
+     * reordered dataset, unless it is up to date
+     *
+     * @return the remapped community file
+     */
+    public File remapCommunities( File communityFile ) {
+        final File remappedFile = derivedFile( communityFile, ".txt" );
+        final File mappingFile = getMappingFile();
+        if ( DatasetFiles.isUpToDate( communityFile, remappedFile ) && DatasetFiles.isUpToDate( mappingFile, remappedFile ) ) {
+            return remappedFile;
+        }
+
+        // the mapping file is sorted by original id
+        final EdgeArrays mapping = EdgeListParser.parse( mappingFile );
+        final int[] originals = new int[mapping.size()];
+        for ( int i = 0; i < mapping.size(); i++ ) {
+            originals[i] = mapping.getSource( i );
+        }
+        final EdgeArrays communities = EdgeListParser.parse( communityFile );
+
+        final File remappedTmp = new File( remappedFile.getAbsolutePath() + ".tmp" );
+        try ( Writer out = new BufferedWriter( new FileWriter( remappedTmp ), WRITE_BUFFER_SIZE ) ) {
+            for ( int i = 0; i < communities.size(); i++ ) {
+                final int index = Arrays.binarySearch( originals, communities.getSource( i ) );
+                // nodes without edges are not part of the reordered dataset
+                if ( index >= 0 ) {
+                    DatasetFiles.writeLine( out, mapping.getDestination( index ), communities.getDestination( i ) );
+                }
+            }
+        } catch ( IOException e ) {
+            remappedTmp.delete();
+            throw new BenchmarkingException( "unable to write remapped communities " + remappedFile.getAbsolutePath(), e );
+        }
+        DatasetFiles.moveIntoPlace( remappedTmp, remappedFile );
+        return remappedFile;
+    }
+
+
+    /**
+     * @return the new position of every dense vertex id
+     */
+    private int[] rank( int n, int[] sources, int[] destinations ) {
+        final int[] positions;
+        switch ( order ) {
+            case SOURCE_SORTED:
+            case ORIGINAL:
+                positions = new int[n];
+                for ( int i = 0; i < n; i++ ) {
+                    positions[i] = i;
+                }
+                break;
+            case BFS:
+                positions = breadthFirst( new Adjacency( n, sources, destinations ) );
+                break;
+            case DEGREE_DESCENDING:
+                positions = byDescendingDegree( new Adjacency( n, sources, destinations ) );
+                break;
+            case COMMUNITY:
+                positions = byCommunity( new Adjacency( n, sources, destinations ) );
+                break;
+            default:
+                throw new IllegalArgumentException( "unsupported vertex order " + order );
+        }
+        final int[] ranks = new int[n];
+        for ( int i = 0; i < n; i++ ) {
+            ranks[positions[i]] = i;
+        }
+        return ranks;
+    }
+
+
+    private static int[] breadthFirst( Adjacency graph ) {
+        final int[] byDegree = byDescendingDegree( graph );
+        final int[] order = new int[graph.n];
+        final boolean[] visited = new boolean[graph.n];
+        int tail = 0;
+        for ( int start : byDegree ) {
+            if ( visited[start] ) {
+                continue;
+            }
+            // the order array doubles as the queue
+            int head = tail;
+            order[tail++] = start;
+            visited[start] = true;
+            while ( head < tail ) {
+                final int v = order[head++];
+                for ( int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++ ) {
+                    final int w = graph.neighbours[i];
+                    if ( !visited[w] ) {
+                        visited[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+
+    private static int[] byDescendingDegree( Adjacency graph ) {
+        // counting sort by degree keeps ties in ascending id order
+        int maxDegree = 0;
+        for ( int v = 0; v < graph.n; v++ ) {
+            maxDegree = Math.max( maxDegree, graph.degree( v ) );
+        }
+        final int[] start = new int[maxDegree + 2];
+        for ( int v = 0; v < graph.n; v++ ) {
+            start[maxDegree - graph.degree( v ) + 1]++;
+        }
+        for ( int i = 1; i < start.length; i++ ) {
+            start[i] += start[i - 1];
+        }
+        final int[] order = new int[graph.n];
+        for ( int v = 0; v < graph.n; v++ ) {
+            order[start[maxDegree - graph.degree( v )]++] = v;
+        }
+        return order;
+    }
+
+
+    /**
+     * Finds communities with a few rounds of label propagation and lays them
+     * out as blocks, ordered by where breadth-first traversal first reaches
+     * them and in breadth-first order within each block
+     */
+    private static int[] byCommunity( Adjacency graph ) {
+        final int[] labels = new int[graph.n];
+        for ( int v = 0; v < graph.n; v++ ) {
+            labels[v] = v;
+        }
+        final int[] counts = new int[graph.n];
+        final int[] touched = new int[graph.n];
+        for ( int round = 0; round < LABEL_PROPAGATION_ROUNDS; round++ ) {
+            boolean changed = false;
+            for ( int v = 0; v < graph.n; v++ ) {
+                int touchedCount = 0;
+                int best = labels[v];
+                int bestCount = 0;
+                for ( int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++ ) {
+                    final int label = labels[graph.neighbours[i]];
+                    if ( counts[label]++ == 0 ) {
+                        touched[touchedCount++] = label;
+                    }
+                    // the most frequent label wins, ties go to the smallest one
+                    if ( counts[label] > bestCount || (counts[label] == bestCount && label < best) ) {
+                        best = label;
+                        bestCount = counts[label];
+                    }
+                }
+                for ( int i = 0; i < touchedCount; i++ ) {
+                    counts[touched[i]] = 0;
+                }
+                if ( bestCount > 0 && best != labels[v] ) {
+                    labels[v] = best;
+                    changed = true;
+                }
+            }
+            if ( !changed ) {
+                break;
+            }
+        }
+
+        final int[] bfs = breadthFirst( graph );
+        final int[] firstSeen = new int[graph.n];
+        Arrays.fill( firstSeen, -1 );
+        for ( int i = 0; i < bfs.length; i++ ) {
+            if ( firstSeen[labels[bfs[i]]] < 0 ) {
+                firstSeen[labels[bfs[i]]] = i;
+            }
+        }
+        // stable sort of the breadth-first order by community rank
+        final long[] keys = new long[graph.n];
+        for ( int i = 0; i < bfs.length; i++ ) {
+            keys[i] = ((long) firstSeen[labels[bfs[i]]] << 32) | i;
+        }
+        Arrays.parallelSort( keys );
+        final int[] order = new int[graph.n];
+        for ( int i = 0; i < keys.length; i++ ) {
+            order[i] = bfs[(int) keys[i]];
+        }
+        return order;
+    }
+}
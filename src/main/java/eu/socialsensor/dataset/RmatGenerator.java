@@ -0,0 +1,52 @@
+package eu.socialsensor.dataset;
+
+
+import java.io.IOException;
+
+
+/**
+ * Recursive matrix (R-MAT) generator with the Graph500 quadrant probabilities.
+ * Every edge recursively picks one quadrant of the adjacency matrix, which
+ * gives a skewed, community-rich degree distribution. The node count is
+ * rounded up to a power of two; nodes that end up without edges simply do not
+ * appear in the output.
+ */
+public class RmatGenerator extends GraphGenerator {
+
+    private static final double A = 0.57;
+    private static final double B = 0.19;
+    private static final double C = 0.19;
+
+    private final int scale;
+
+
+    public RmatGenerator( int nodes, int averageDegree, long seed ) {
+        super( nodes, averageDegree, seed );
+        this.scale = Integer.SIZE - Integer.numberOfLeadingZeros( nodes - 1 );
+        if ( scale > 30 ) {
+            throw new IllegalArgumentException( "R-MAT supports at most 2^30 nodes" );
+        }
+    }
+
+
+    @Override
+    public void generate( GraphSink sink ) throws IOException {
+        final long edges = (long) nodes * averageDegree / 2;
+        for ( long e = 0; e < edges; e++ ) {
+            int source = 0;
+            int destination = 0;
+            for ( int bit = scale - 1; bit >= 0; bit-- ) {
+                final double p = random.nextDouble();
+                if ( p >= A + B + C ) {
+                    source |= 1 << bit;
+                    destination |= 1 << bit;
+                } else if ( p >= A + B ) {
+                    source |= 1 << bit;
+                } else if ( p >= A ) {
+                    destination |= 1 << bit;
+                }
+            }
+            sink.edge( source + 1, destination + 1 );
+        }
+    }
+}
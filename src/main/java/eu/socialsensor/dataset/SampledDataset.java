@@ -0,0 +1,222 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * A subgraph of a dataset holding a given fraction of its nodes (or edges,
+ * for edge sampling), written next to the dataset in the tabulated format.
+ * Node ids are kept, so community files only need to be filtered. Sampled
+ * files are reused while they are newer than the dataset.
+ */
+public class SampledDataset {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // probability of burning each further neighbour, as in Leskovec et al.
+    private static final double FOREST_FIRE_FORWARD_PROBABILITY = 0.7;
+
+    private final Dataset dataset;
+    private final SamplingMethod method;
+    private final double fraction;
+    private final long seed;
+
+
+    public SampledDataset( Dataset dataset, SamplingMethod method, double fraction, long seed ) {
+        if ( !(fraction > 0 && fraction <= 1) ) {
+            throw new IllegalArgumentException( "sampling fraction must be in (0, 1]: " + fraction );
+        }
+        this.dataset = dataset;
+        this.method = method;
+        this.fraction = fraction;
+        this.seed = seed;
+    }
+
+
+    public File getEdgeFile() {
+        return derivedFile( dataset.getDatasetFile() );
+    }
+
+
+    private File derivedFile( File file ) {
+        return new File( String.format( "%s.%s-%s-%d.txt", file.getAbsolutePath(), method.name().toLowerCase(), fraction, seed ) );
+    }
+
+
+    /**
+     * Writes the sample unless it is up to date
+     */
+    public void ensureSampled() {
+        final File edgeFile = getEdgeFile();
+        if ( DatasetFiles.isUpToDate( dataset.getDatasetFile(), edgeFile ) ) {
+            return;
+        }
+
+        logger.info( "Sampling {} of {} by {}", fraction, dataset.getDatasetFile().getAbsolutePath(), method );
+        final int[] nodes = dataset.getNodes();
+        final boolean[] keep;
+        switch ( method ) {
+            case NODE_INDUCED:
+                keep = new boolean[nodes.length];
+                for ( int i = 0; i < nodes.length; i++ ) {
+                    keep[i] = unit( seed, nodes[i] ) < fraction;
+                }
+                break;
+            case FOREST_FIRE:
+                keep = forestFire( nodes );
+                break;
+            case EDGE_SAMPLED:
+                keep = null;
+                break;
+            default:
+                throw new IllegalArgumentException( "unsupported sampling method " + method );
+        }
+
+        final File edgeTmp = new File( edgeFile.getAbsolutePath() + ".tmp" );
+        long edges = 0;
+        try ( Writer out = new BufferedWriter( new FileWriter( edgeTmp ), WRITE_BUFFER_SIZE );
+              EdgeCursor cursor = dataset.cursor() ) {
+            for ( long i = 0; cursor.next(); i++ ) {
+                final boolean sampled = keep == null
+                        ? unit( seed, i ) < fraction
+                        : keep[Arrays.binarySearch( nodes, cursor.getSource() )] && keep[Arrays.binarySearch( nodes, cursor.getDestination() )];
+                if ( sampled ) {
+                    DatasetFiles.writeLine( out, cursor.getSource(), cursor.getDestination() );
+                    edges++;
+                }
+            }
+        } catch ( IOException e ) {
+            edgeTmp.delete();
+            throw new BenchmarkingException( "unable to write sampled dataset " + edgeFile.getAbsolutePath(), e );
+        }
+        DatasetFiles.moveIntoPlace( edgeTmp, edgeFile );
+        logger.info( "Wrote {} edges to {}", edges, edgeFile.getAbsolutePath() );
+    }
+
+
+    /**
+     * Writes a copy of a community file restricted to the nodes of the
+     * sample, unless it is up to date
+     *
+     * @return the filtered community file
+     */
+    public File filterCommunities( File communityFile ) {
+        final File filteredFile = derivedFile( communityFile );
+        final File edgeFile = getEdgeFile();
+        if ( DatasetFiles.isUpToDate( communityFile, filteredFile ) && DatasetFiles.isUpToDate( edgeFile, filteredFile ) ) {
+            return filteredFile;
+        }
+
+        final EdgeArrays edges = EdgeListParser.parse( edgeFile );
+        final int[] ids = new int[2 * edges.size()];
+        for ( int i = 0; i < edges.size(); i++ ) {
+            ids[2 * i] = edges.getSource( i );
+            ids[2 * i + 1] = edges.getDestination( i );
+        }
+        final int[] sampledNodes = Dataset.sortedDistinct( ids, ids.length );
+        final EdgeArrays communities = EdgeListParser.parse( communityFile );
+
+        final File filteredTmp = new File( filteredFile.getAbsolutePath() + ".tmp" );
+        try ( Writer out = new BufferedWriter( new FileWriter( filteredTmp ), WRITE_BUFFER_SIZE ) ) {
+            for ( int i = 0; i < communities.size(); i++ ) {
+                if ( Arrays.binarySearch( sampledNodes, communities.getSource( i ) ) >= 0 ) {
+                    DatasetFiles.writeLine( out, communities.getSource( i ), communities.getDestination( i ) );
+                }
+            }
+        } catch ( IOException e ) {
+            filteredTmp.delete();
+            throw new BenchmarkingException( "unable to write filtered communities " + filteredFile.getAbsolutePath(), e );
+        }
+        DatasetFiles.moveIntoPlace( filteredTmp, filteredFile );
+        return filteredFile;
+    }
+
+
+    /**
+     * Burns the whole graph with the forest fire process, igniting a random
+     * unburned node whenever the fire dies out, and keeps the nodes burned
+     * first. The burn order only depends on the seed, which makes the samples
+     * nested.
+     */
+    private boolean[] forestFire( int[] nodes ) {
+        final int[] sources = new int[Math.toIntExact( dataset.getStatistics().getEdgeCount() )];
+        final int[] destinations = new int[sources.length];
+        try ( EdgeCursor cursor = dataset.cursor() ) {
+            for ( int i = 0; cursor.next(); i++ ) {
+                sources[i] = Arrays.binarySearch( nodes, cursor.getSource() );
+                destinations[i] = Arrays.binarySearch( nodes, cursor.getDestination() );
+            }
+        }
+        final Adjacency graph = new Adjacency( nodes.length, sources, destinations );
+
+        final SplittableRandom random = new SplittableRandom( seed );
+        final int[] order = new int[graph.n];
+        final boolean[] burned = new boolean[graph.n];
+        final int[] candidates = new int[graph.n];
+        int tail = 0;
+        while ( tail < graph.n ) {
+            int ignition = random.nextInt( graph.n );
+            while ( burned[ignition] ) {
+                ignition = ignition + 1 == graph.n ? 0 : ignition + 1;
+            }
+            // the order array doubles as the queue of burning nodes
+            int head = tail;
+            order[tail++] = ignition;
+            burned[ignition] = true;
+            while ( head < tail ) {
+                final int v = order[head++];
+                int unburned = 0;
+                for ( int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++ ) {
+                    if ( !burned[graph.neighbours[i]] ) {
+                        candidates[unburned++] = graph.neighbours[i];
+                    }
+                }
+                // a geometrically distributed number of neighbours catches fire
+                int spread = 0;
+                while ( random.nextDouble() < FOREST_FIRE_FORWARD_PROBABILITY ) {
+                    spread++;
+                }
+                for ( int i = 0; i < Math.min( spread, unburned ); i++ ) {
+                    final int j = i + random.nextInt( unburned - i );
+                    final int w = candidates[j];
+                    candidates[j] = candidates[i];
+                    if ( !burned[w] ) {
+                        burned[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        final boolean[] keep = new boolean[graph.n];
+        final int kept = (int) Math.round( fraction * graph.n );
+        for ( int i = 0; i < kept; i++ ) {
+            keep[order[i]] = true;
+        }
+        return keep;
+    }
+
+
+    /**
+     * @return a uniform number in [0, 1) that only depends on the seed and the
+     * value, using the SplitMix64 finalizer
+     */
+    private static double unit( long seed, long value ) {
+        long z = seed * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
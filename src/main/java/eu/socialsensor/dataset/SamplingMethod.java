@@ -0,0 +1,24 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * How a {@link SampledDataset} selects its part of a dataset. All methods
+ * are nested: with the same seed, a smaller fraction is always a subgraph of
+ * a larger one.
+ */
+public enum SamplingMethod {
+    /**
+     * Keep a random fraction of the nodes and the edges between them
+     */
+    NODE_INDUCED,
+    /**
+     * Keep a random fraction of the edges
+     */
+    EDGE_SAMPLED,
+    /**
+     * Keep the nodes burned first by a forest fire process, and the edges
+     * between them. This preserves the densification and the heavy-tailed
+     * degrees of the original better than uniform sampling.
+     */
+    FOREST_FIRE
+}
@@ -0,0 +1,186 @@
+package eu.socialsensor.dataset;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * A dataset that is parsed lazily on every pass. A dedicated reader thread
+ * parses the text file from a buffered channel into fixed-size batches of
+ * edges and hands them to the consumer through a bounded queue. Batches are
+ * recycled, so heap use is constant in the size of the dataset and parsing
+ * overlaps with whatever the consumer does with the edges.
+ */
+public class StreamingDataset extends Dataset {
+
+    public static final int EDGES_PER_BATCH = 1 << 16;
+    public static final int QUEUED_BATCHES = 4;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    public StreamingDataset( File datasetFile ) {
+        super( datasetFile );
+    }
+
+
+    @Override
+    public EdgeCursor cursor() {
+        return new StreamingEdgeCursor();
+    }
+
+
+    @Override
+    protected boolean canComputeStatistics() {
+        // would break the constant heap, so the sidecar file has to exist
+        return false;
+    }
+
+
+    private static final class EdgeBatch {
+
+        // source and destination ids, interleaved
+        private final int[] edges = new int[2 * EDGES_PER_BATCH];
+        private int size = 0;
+
+
+        private boolean isFull() {
+            return size == EDGES_PER_BATCH;
+        }
+
+
+        private void add( int source, int destination ) {
+            edges[2 * size] = source;
+            edges[2 * size + 1] = destination;
+            size++;
+        }
+    }
+
+
+    private final class StreamingEdgeCursor implements EdgeCursor, Runnable {
+
+        // marks the end of the dataset in the queue of parsed batches
+        private final EdgeBatch endOfData = new EdgeBatch();
+        private final BlockingQueue<EdgeBatch> parsed = new ArrayBlockingQueue<>( QUEUED_BATCHES );
+        private final BlockingQueue<EdgeBatch> free = new ArrayBlockingQueue<>( QUEUED_BATCHES + 2 );
+        private final Thread reader;
+        private volatile Throwable failure = null;
+
+        private EdgeBatch current = null;
+        private int index = 0;
+        private int source;
+        private int destination;
+
+
+        private StreamingEdgeCursor() {
+            // one batch being filled, the queued ones and one being consumed
+            for ( int i = 0; i < QUEUED_BATCHES + 2; i++ ) {
+                free.add( new EdgeBatch() );
+            }
+            reader = new Thread( this, "dataset-reader-" + datasetFile.getName() );
+            reader.setDaemon( true );
+            reader.start();
+        }
+
+
+        @Override
+        public boolean next() {
+            if ( current == null || index == current.size ) {
+                if ( current == endOfData ) {
+                    return false;
+                }
+                if ( current != null ) {
+                    current.size = 0;
+                    free.add( current );
+                }
+                try {
+                    current = parsed.take();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new BenchmarkingException( "interrupted while waiting for " + datasetFile.getAbsolutePath(), e );
+                }
+                index = 0;
+                if ( current == endOfData ) {
+                    if ( failure != null ) {
+                        throw new BenchmarkingException( "unable to read dataset " + datasetFile.getAbsolutePath(), failure );
+                    }
+                    return false;
+                }
+            }
+            source = current.edges[2 * index];
+            destination = current.edges[2 * index + 1];
+            index++;
+            return true;
+        }
+
+
+        @Override
+        public int getSource() {
+            return source;
+        }
+
+
+        @Override
+        public int getDestination() {
+            return destination;
+        }
+
+
+        @Override
+        public void close() {
+            reader.interrupt();
+            try {
+                reader.join();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+
+        @Override
+        public void run() {
+            try ( ReadableByteChannel channel = DatasetCompression.openChannel( datasetFile ) ) {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect( READ_BUFFER_SIZE );
+                final EdgeLineParser parser = new EdgeLineParser();
+                EdgeBatch batch = free.take();
+                while ( channel.read( buffer ) >= 0 ) {
+                    buffer.flip();
+                    while ( buffer.hasRemaining() ) {
+                        if ( parser.accept( buffer.get() ) ) {
+                            batch.add( parser.getSource(), parser.getDestination() );
+                            if ( batch.isFull() ) {
+                                parsed.put( batch );
+                                batch = free.take();
+                            }
+                        }
+                    }
+                    buffer.clear();
+                }
+                if ( parser.endOfInput() ) {
+                    batch.add( parser.getSource(), parser.getDestination() );
+                }
+
+                if ( batch.size > 0 ) {
+                    parsed.put( batch );
+                }
+            } catch ( InterruptedException e ) {
+                // the consumer closed the cursor
+                return;
+            } catch ( IllegalArgumentException e ) {
+                failure = new BenchmarkingException( "malformed data: " + e.getMessage(), e );
+            } catch ( IOException | RuntimeException e ) {
+                failure = e;
+            }
+
+            try {
+                parsed.put( endOfData );
+            } catch ( InterruptedException e ) {
+                // the consumer closed the cursor
+            }
+        }
+    }
+}
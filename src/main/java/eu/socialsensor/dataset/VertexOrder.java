@@ -0,0 +1,33 @@
+package eu.socialsensor.dataset;
+
+
+/**
+ * Orders in which the vertices of a dataset can be relabeled before it is
+ * loaded. Insertion order determines the physical layout in the stores, so a
+ * locality-preserving order makes traversals touch fewer pages.
+ */
+public enum VertexOrder {
+    /**
+     * Keep the file as it is
+     */
+    ORIGINAL,
+    /**
+     * Dense labels in ascending order of the original ids, edges sorted by
+     * source
+     */
+    SOURCE_SORTED,
+    /**
+     * Breadth-first order, starting every component at its highest-degree
+     * vertex
+     */
+    BFS,
+    /**
+     * Descending degree, so hubs are stored together
+     */
+    DEGREE_DESCENDING,
+    /**
+     * Communities found by label propagation are stored as contiguous blocks,
+     * in the spirit of Rabbit Order and Gorder
+     */
+    COMMUNITY
+}
@@ -1,10 +1,13 @@
 package eu.socialsensor.graphdatabases;
 
 
+import eu.socialsensor.insert.ArrivalProcess;
+import eu.socialsensor.insert.ParallelInsertionResult;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.HdrHistogram.Histogram;
 
 
 /**
@@ -45,9 +48,24 @@ public interface GraphDatabase<VertexIteratorType, EdgeIteratorType, VertexType,
     void cleanupVertexIterator( VertexIteratorType it );
 
     //benchmarks
-    void findAllNodeNeighbours();
+    /**
+     * @return the checksum of the neighbours visited
+     */
+    QueryChecksum findAllNodeNeighbours();
 
-    void findNodesOfAllEdges();
+    /**
+     * Finds the neighbours of all nodes with the vertex space split into one
+     * partition per thread, every thread in a transaction or session of its
+     * own
+     *
+     * @return the checksum of the neighbours visited
+     */
+    QueryChecksum findAllNodeNeighboursInParallel( int threads );
+
+    /**
+     * @return the checksum of the endpoints of all edges
+     */
+    QueryChecksum findNodesOfAllEdges();
 
     /**
      * Opens the graph database
@@ -73,11 +91,48 @@ public interface GraphDatabase<VertexIteratorType, EdgeIteratorType, VertexType,
      */
     void singleModeLoading( File dataPath, File resultsPath, int scenarioNumber );
 
+    /**
+     * Inserts data in transactional mode with a pool of writer threads, into
+     * a graph created with createGraphForSingleLoad
+     *
+     * @param dataPath - dataset path
+     * @param threads - number of writer threads
+     * @param batchSize - edges per transaction
+     * @return the number of inserted edges and the commit latencies
+     */
+    ParallelInsertionResult parallelModeLoading( File dataPath, int threads, int batchSize );
+
+    /**
+     * Inserts data in single mode at a given arrival rate, into a graph
+     * created with createGraphForSingleLoad
+     *
+     * @param dataPath - dataset path
+     * @param edgesPerSecond - arrival rate
+     * @param arrivals - fixed or random arrivals
+     * @param maxEdges - edges to insert, 0 for all
+     * @return the latencies of the edges from their arrival in nanoseconds
+     */
+    Histogram openLoopLoading( File dataPath, double edgesPerSecond, ArrivalProcess arrivals, long maxEdges );
+
     /**
      * Creates a graph database and configures for bulk data insertion
      */
     void createGraphForMassiveLoad();
 
+    /**
+     * Builds the indexes that the massive load left for after the data, called
+     * between massiveModeLoading and shutdownMassiveGraph. Indexes are only
+     * left for now with deferred indexes configured, or if the loader cannot
+     * maintain them.
+     */
+    void buildMassiveIndexes();
+
+    /**
+     * @return the load time in milliseconds spent before the checkpoint the
+     * last massive load resumed from, 0 if it started from scratch
+     */
+    long getMassiveLoadResumedMillis();
+
     /**
      * Shut down the graph database
      */
@@ -98,13 +153,17 @@ public interface GraphDatabase<VertexIteratorType, EdgeIteratorType, VertexType,
      * Find the shortest path between vertex 1 and each of the vertexes in the list
      *
      * @param nodes any number of random nodes
+     * @return the checksum of the path lengths
      */
-    void shortestPaths( Set<Integer> nodes );
+    QueryChecksum shortestPaths( Set<Integer> nodes );
 
     /**
-     * Execute findShortestPaths query from the Query interface
+     * Execute findShortestPaths query from the Query interface, along outgoing
+     * edges of at most {@link GraphDatabaseBase#SHORTEST_PATH_MAX_HOPS} hops
+     *
+     * @return the length of the path in hops, -1 if there is none
      */
-    void shortestPath( final VertexType fromNode, Integer node );
+    int shortestPath( final VertexType fromNode, Integer node );
 
     /**
      * @return the number of nodes
@@ -3,12 +3,21 @@ package eu.socialsensor.graphdatabases;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseBenchmark;
 import eu.socialsensor.main.GraphDatabaseType;
 import org.neo4j.graphdb.Transaction;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @SuppressWarnings("deprecation")
@@ -19,9 +28,15 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
     public static final String NODE_ID = "nodeId";
     public static final String NODE_COMMUNITY = "nodeCommunity";
     public static final String COMMUNITY = "community";
+    // every database follows outgoing edges up to this many hops, so the
+    // path lengths are comparable between them
+    public static final int SHORTEST_PATH_MAX_HOPS = 5;
+    protected final BenchmarkConfiguration config;
     protected final File dbStorageDirectory;
     protected final MetricRegistry metrics = new MetricRegistry();
     protected final GraphDatabaseType type;
+    // set by databases whose massive load can resume from a checkpoint
+    protected long massiveLoadResumedMillis = 0;
     private final Timer nextVertexTimes;
     private final Timer getNeighborsOfVertexTimes;
     private final Timer nextEdgeTimes;
@@ -30,8 +45,9 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
     private final Timer shortestPathTimes;
 
 
-    protected GraphDatabaseBase( GraphDatabaseType type, File dbStorageDirectory ) {
+    protected GraphDatabaseBase( GraphDatabaseType type, BenchmarkConfiguration config, File dbStorageDirectory ) {
         this.type = type;
+        this.config = config;
         final String queryTypeContext = type.getShortname() + QUERY_CONTEXT;
         this.nextVertexTimes = GraphDatabaseBenchmark.metrics.timer( queryTypeContext + "nextVertex" );
         this.getNeighborsOfVertexTimes = GraphDatabaseBenchmark.metrics.timer( queryTypeContext + "getNeighborsOfVertex" );
@@ -48,50 +64,30 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
 
 
     @Override
-    public void findAllNodeNeighbours() {
+    public long getMassiveLoadResumedMillis() {
+        return massiveLoadResumedMillis;
+    }
+
+
+    @Override
+    public QueryChecksum findAllNodeNeighbours() {
+        final QueryChecksum checksum = new QueryChecksum();
         //get the iterator
         Transaction tx = null;
         if ( GraphDatabaseType.NEO4J == type ) { //TODO fix this
             tx = ((Neo4jGraphDatabase) this).neo4jGraph.beginTx();
         }
         try {
-            VertexIteratorType vertexIterator = this.getVertexIterator();
-            while ( vertexIteratorHasNext( vertexIterator ) ) {
-                VertexType vertex;
-                Timer.Context ctxt = nextVertexTimes.time();
-                try {
-                    vertex = nextVertex( vertexIterator );
-                } finally {
-                    ctxt.stop();
-                }
-
-                final EdgeIteratorType edgeNeighborIterator;
-                ctxt = getNeighborsOfVertexTimes.time();
-                try {
-                    edgeNeighborIterator = this.getNeighborsOfVertex( vertex );
-                } finally {
-                    ctxt.stop();
+            if ( config.getQueryInstrumentation() == QueryInstrumentation.NONE ) {
+                visitAllNodeNeighbours( checksum );
+            } else {
+                try ( OperationProbe nextVertexProbe = probe( nextVertexTimes, "nextVertex" );
+                      OperationProbe getNeighborsOfVertexProbe = probe( getNeighborsOfVertexTimes, "getNeighborsOfVertex" );
+                      OperationProbe nextEdgeProbe = probe( nextEdgeTimes, "nextEdge" );
+                      OperationProbe getOtherVertexFromEdgeProbe = probe( getOtherVertexFromEdgeTimes, "getOtherVertexFromEdge" ) ) {
+                    visitAllNodeNeighbours( checksum, nextVertexProbe, getNeighborsOfVertexProbe, nextEdgeProbe, getOtherVertexFromEdgeProbe );
                 }
-                while ( edgeIteratorHasNext( edgeNeighborIterator ) ) {
-                    EdgeType edge;
-                    ctxt = nextEdgeTimes.time();
-                    try {
-                        edge = nextEdge( edgeNeighborIterator );
-                    } finally {
-                        ctxt.stop();
-                    }
-                    @SuppressWarnings("unused")
-                    Object other;
-                    ctxt = getOtherVertexFromEdgeTimes.time();
-                    try {
-                        other = getOtherVertexFromEdge( edge, vertex );
-                    } finally {
-                        ctxt.stop();
-                    }
-                }
-                this.cleanupEdgeIterator( edgeNeighborIterator );
             }
-            this.cleanupVertexIterator( vertexIterator );
             if ( this instanceof Neo4jGraphDatabase ) {
                 tx.success();
             }
@@ -100,48 +96,161 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
                 tx.close();
             }
         }
+        return checksum.publish();
+    }
+
+
+    private void visitAllNodeNeighbours( QueryChecksum checksum, OperationProbe nextVertexProbe, OperationProbe getNeighborsOfVertexProbe, OperationProbe nextEdgeProbe, OperationProbe getOtherVertexFromEdgeProbe ) {
+        VertexIteratorType vertexIterator = this.getVertexIterator();
+        while ( vertexIteratorHasNext( vertexIterator ) ) {
+            nextVertexProbe.start();
+            final VertexType vertex = nextVertex( vertexIterator );
+            nextVertexProbe.stop();
+
+            getNeighborsOfVertexProbe.start();
+            final EdgeIteratorType edgeNeighborIterator = this.getNeighborsOfVertex( vertex );
+            getNeighborsOfVertexProbe.stop();
+            while ( edgeIteratorHasNext( edgeNeighborIterator ) ) {
+                nextEdgeProbe.start();
+                final EdgeType edge = nextEdge( edgeNeighborIterator );
+                nextEdgeProbe.stop();
+
+                getOtherVertexFromEdgeProbe.start();
+                final VertexType other = getOtherVertexFromEdge( edge, vertex );
+                getOtherVertexFromEdgeProbe.stop();
+                checksum.consume( other );
+            }
+            this.cleanupEdgeIterator( edgeNeighborIterator );
+        }
+        this.cleanupVertexIterator( vertexIterator );
     }
 
 
+    /**
+     * The uninstrumented loop of findAllNodeNeighbours
+     */
+    private void visitAllNodeNeighbours( QueryChecksum checksum ) {
+        VertexIteratorType vertexIterator = this.getVertexIterator();
+        while ( vertexIteratorHasNext( vertexIterator ) ) {
+            final VertexType vertex = nextVertex( vertexIterator );
+            final EdgeIteratorType edgeNeighborIterator = this.getNeighborsOfVertex( vertex );
+            while ( edgeIteratorHasNext( edgeNeighborIterator ) ) {
+                checksum.consume( getOtherVertexFromEdge( nextEdge( edgeNeighborIterator ), vertex ) );
+            }
+            this.cleanupEdgeIterator( edgeNeighborIterator );
+        }
+        this.cleanupVertexIterator( vertexIterator );
+    }
+
+
+    /**
+     * @return a probe of the operation for one query loop, counted under
+     * the timer name with a .count suffix
+     */
+    private OperationProbe probe( Timer timer, String operation ) {
+        return new OperationProbe( timer, GraphDatabaseBenchmark.metrics.counter( type.getShortname() + QUERY_CONTEXT + operation + ".count" ),
+                config.getQueryInstrumentation(), config.getQuerySampleInterval() );
+    }
+
+
+    /**
+     * Visits the neighbours of the vertexes in the given partition of the
+     * vertex space, in a transaction or session opened by and for the calling
+     * thread. The partitions together cover every vertex once. The operations
+     * are not timed one by one, the shared timers would serialize the threads.
+     *
+     * @param checksum consumes the neighbours, owned by the calling thread
+     */
+    protected abstract void findNeighboursOfPartition( int partition, int partitions, QueryChecksum checksum );
+
+
     @Override
-    public void findNodesOfAllEdges() {
+    public final QueryChecksum findAllNodeNeighboursInParallel( int threads ) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool( threads, runnable -> {
+            final Thread thread = new Thread( runnable, type.getShortname() + "-reader-" + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        final List<Future<QueryChecksum>> readers = new ArrayList<>( threads );
+        try {
+            for ( int i = 0; i < threads; i++ ) {
+                final int partition = i;
+                readers.add( pool.submit( () -> {
+                    final QueryChecksum checksum = new QueryChecksum();
+                    findNeighboursOfPartition( partition, threads, checksum );
+                    return checksum;
+                } ) );
+            }
+            final QueryChecksum checksum = new QueryChecksum();
+            for ( Future<QueryChecksum> reader : readers ) {
+                checksum.add( reader.get() );
+            }
+            return checksum.publish();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new BenchmarkingException( "interrupted while finding the neighbours of all nodes", e );
+        } catch ( ExecutionException e ) {
+            throw new BenchmarkingException( "reader failed to find the neighbours of its partition", e.getCause() );
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    /**
+     * @return the first index of the partition when the given number of
+     * indexes is split into partitions of about the same size
+     */
+    protected static long partitionStart( long size, int partition, int partitions ) {
+        return size * partition / partitions;
+    }
+
+
+    @Override
+    public QueryChecksum findNodesOfAllEdges() {
+        final QueryChecksum checksum = new QueryChecksum();
         Transaction tx = null;
         if ( GraphDatabaseType.NEO4J == type ) {//TODO fix this
             tx = ((Neo4jGraphDatabase) this).neo4jGraph.beginTx();
         }
         try {
-
-            EdgeIteratorType edgeIterator;
-            Timer.Context ctxt = getAllEdgesTimes.time();
-            try {
-                edgeIterator = this.getAllEdges();
-            } finally {
-                ctxt.stop();
+            if ( config.getQueryInstrumentation() == QueryInstrumentation.NONE ) {
+                final EdgeIteratorType edgeIterator = this.getAllEdges();
+                while ( edgeIteratorHasNext( edgeIterator ) ) {
+                    final EdgeType edge = nextEdge( edgeIterator );
+                    checksum.consume( this.getSrcVertexFromEdge( edge ) );
+                    checksum.consume( this.getDestVertexFromEdge( edge ) );
+                }
+                return checksum.publish();
             }
 
-            while ( edgeIteratorHasNext( edgeIterator ) ) {
-                EdgeType edge;
-                ctxt = nextEdgeTimes.time();
-                try {
-                    edge = nextEdge( edgeIterator );
-                } finally {
-                    ctxt.stop();
+            try ( OperationProbe getAllEdgesProbe = probe( getAllEdgesTimes, "getAllEdges" );
+                  OperationProbe nextEdgeProbe = probe( nextEdgeTimes, "nextEdge" ) ) {
+                getAllEdgesProbe.start();
+                final EdgeIteratorType edgeIterator = this.getAllEdges();
+                getAllEdgesProbe.stop();
+
+                while ( edgeIteratorHasNext( edgeIterator ) ) {
+                    nextEdgeProbe.start();
+                    final EdgeType edge = nextEdge( edgeIterator );
+                    nextEdgeProbe.stop();
+                    checksum.consume( this.getSrcVertexFromEdge( edge ) );
+                    checksum.consume( this.getDestVertexFromEdge( edge ) );
                 }
-                @SuppressWarnings("unused")
-                VertexType source = this.getSrcVertexFromEdge( edge );
-                @SuppressWarnings("unused")
-                VertexType destination = this.getDestVertexFromEdge( edge );
             }
         } finally {//TODO fix this
             if ( GraphDatabaseType.NEO4J == type ) {
                 tx.close();
             }
         }
+        return checksum.publish();
     }
 
 
     @Override
-    public void shortestPaths( Set<Integer> nodes ) {
+    public QueryChecksum shortestPaths( Set<Integer> nodes ) {
+        final QueryChecksum checksum = new QueryChecksum();
         Transaction tx = null;
         if ( GraphDatabaseType.NEO4J == type ) {//TODO fix this
             tx = ((Neo4jGraphDatabase) this).neo4jGraph.beginTx();
@@ -154,7 +263,7 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
                 //time this
                 ctxt = shortestPathTimes.time();
                 try {
-                    shortestPath( from, i );
+                    checksum.consumePath( shortestPath( from, i ) );
                 } finally {
                     ctxt.stop();
                 }
@@ -167,5 +276,6 @@ public abstract class GraphDatabaseBase<VertexIteratorType, EdgeIteratorType, Ve
                 tx.close();
             }
         }
+        return checksum.publish();
     }
 }
@@ -3,19 +3,29 @@ package eu.socialsensor.graphdatabases;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import eu.socialsensor.insert.ArrivalProcess;
 import eu.socialsensor.insert.Insertion;
+import eu.socialsensor.insert.MassiveLoadCheckpoint;
+import eu.socialsensor.insert.Neo4jImportToolInsertion;
+import eu.socialsensor.insert.Neo4jInsertionStrategy;
 import eu.socialsensor.insert.Neo4jMassiveInsertion;
+import eu.socialsensor.insert.Neo4jMassiveLoader;
 import eu.socialsensor.insert.Neo4jSingleInsertion;
+import eu.socialsensor.insert.ParallelInsertionResult;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
+import org.HdrHistogram.Histogram;
 import org.neo4j.graphalgo.GraphAlgoFactory;
 import org.neo4j.graphalgo.PathFinder;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.graphdb.schema.Schema;
-import org.neo4j.graphdb.traversal.TraversalDescription;
-import org.neo4j.kernel.impl.traversal.MonoDirectionalTraversalDescription;
+import org.neo4j.kernel.impl.store.id.IdGeneratorFactory;
+import org.neo4j.kernel.impl.store.id.IdType;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 import org.neo4j.unsafe.batchinsert.BatchInserters;
 
@@ -38,6 +48,7 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
     private Schema schema = null;
 
     private BatchInserter inserter = null;
+    private Neo4jMassiveLoader massiveLoader;
 
 
     public enum RelTypes implements RelationshipType {
@@ -48,8 +59,9 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
     public static Label NODE_LABEL = DynamicLabel.label("Node");
 
 
-    public Neo4jGraphDatabase(File dbStorageDirectoryIn) {
-        super(GraphDatabaseType.NEO4J, dbStorageDirectoryIn);
+    public Neo4jGraphDatabase(BenchmarkConfiguration config, File dbStorageDirectoryIn) {
+        super(GraphDatabaseType.NEO4J, config, dbStorageDirectoryIn);
+        this.massiveLoader = config.getNeo4jMassiveLoaders().get(0);
     }
 
 
@@ -86,8 +98,42 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
     }
 
 
+    /**
+     * Selects how createGraphForMassiveLoad and massiveModeLoading build the
+     * store, the first configured loader by default
+     */
+    public void setMassiveLoader(Neo4jMassiveLoader massiveLoader) {
+        this.massiveLoader = massiveLoader;
+    }
+
+
     @Override
     public void createGraphForMassiveLoad() {
+        if (massiveLoader == Neo4jMassiveLoader.IMPORT_TOOL) {
+            // the importer creates the store itself
+            return;
+        }
+        final MassiveLoadCheckpoint checkpoint = new MassiveLoadCheckpoint(dbStorageDirectory);
+        final boolean resuming = config.getCheckpointInterval() > 0 && checkpoint.exists();
+        if (resuming) {
+            // the store of the failed load may be inconsistent, continue from the copy of the checkpoint
+            checkpoint.restoreStore();
+        }
+
+        try {
+            inserter = BatchInserters.inserter(dbStorageDirectory, inserterConfig());
+            if (!config.isDeferredIndexes() && config.getCheckpointInterval() == 0) {
+                // populated while the inserter shuts down
+                createDeferredSchema();
+            }
+
+        } catch (IOException e) {
+            throw new BenchmarkingException("Bad database storage directory, check the path", e);
+        }
+    }
+
+
+    private static Map<String, String> inserterConfig() {
         Map<String, String> config = new HashMap<>();
         config.put("cache_type", "none");
         config.put("use_memory_mapped_buffers", "true");
@@ -95,14 +141,22 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
         config.put("neostore.relationshipstore.db.mapped_memory", "1000M");
         config.put("neostore.propertystore.db.mapped_memory", "250M");
         config.put("neostore.propertystore.db.strings.mapped_memory", "250M");
+        return config;
+    }
 
-        try {
-            inserter = BatchInserters.inserter(dbStorageDirectory, config);
-            createDeferredSchema();
 
+    /**
+     * Shuts the inserter down, which flushes the store to a consistent state,
+     * and opens a new one on the same store
+     */
+    private BatchInserter restartInserter() {
+        shutdownInserter();
+        try {
+            inserter = BatchInserters.inserter(dbStorageDirectory, inserterConfig());
         } catch (IOException e) {
-            throw new BenchmarkingException("Bad database storage directory, check the path", e);
+            throw new BenchmarkingException("unable to reopen the store after a checkpoint", e);
         }
+        return inserter;
     }
 
 
@@ -115,15 +169,98 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
 
     @Override
     public void singleModeLoading(File dataPath, File resultsPath, int scenarioNumber) {
-        Insertion neo4jSingleInsertion = new Neo4jSingleInsertion(this.neo4jGraph, resultsPath);
+        singleModeLoading(dataPath, resultsPath, scenarioNumber, config.getNeo4jInsertionStrategies().get(0));
+    }
+
+
+    /**
+     * Inserts data in single mode, getting or creating vertexes with the given
+     * strategy
+     */
+    public void singleModeLoading(File dataPath, File resultsPath, int scenarioNumber, Neo4jInsertionStrategy strategy) {
+        Insertion neo4jSingleInsertion = new Neo4jSingleInsertion(config, this.neo4jGraph, resultsPath, strategy);
         neo4jSingleInsertion.createGraph(dataPath, scenarioNumber);
     }
 
 
+    @Override
+    public Histogram openLoopLoading(File dataPath, double edgesPerSecond, ArrivalProcess arrivals, long maxEdges) {
+        Neo4jSingleInsertion neo4jOpenLoopInsertion = new Neo4jSingleInsertion(config, this.neo4jGraph, null /* resultsPath */, config.getNeo4jInsertionStrategies().get(0));
+        return neo4jOpenLoopInsertion.createGraphAtRate(dataPath, edgesPerSecond, arrivals, maxEdges);
+    }
+
+
+    @Override
+    public ParallelInsertionResult parallelModeLoading(File dataPath, int threads, int batchSize) {
+        createUniqueNodeIdConstraint();
+        Neo4jSingleInsertion neo4jParallelInsertion = new Neo4jSingleInsertion(config, this.neo4jGraph, null /* resultsPath */, config.getNeo4jInsertionStrategies().get(0));
+        return neo4jParallelInsertion.createGraphInParallel(dataPath, threads, batchSize);
+    }
+
+
+    /**
+     * Concurrent MERGEs only lock the node id when it is backed by a
+     * uniqueness constraint, so the plain index of the single load is replaced
+     * by one.
+     */
+    private void createUniqueNodeIdConstraint() {
+        try (final Transaction tx = beginUnforcedTransaction()) {
+            try {
+                schema = neo4jGraph.schema();
+                for (IndexDefinition index : schema.getIndexes(NODE_LABEL)) {
+                    if (!index.isConstraintIndex() && Iterables.contains(index.getPropertyKeys(), NODE_ID)) {
+                        index.drop();
+                    }
+                }
+                schema.constraintFor(NODE_LABEL).assertPropertyIsUnique(NODE_ID).create();
+                tx.success();
+            } catch (Exception e) {
+                tx.failure();
+                throw new BenchmarkingException("unable to create the node id constraint", e);
+            }
+        }
+        try (final Transaction tx = beginUnforcedTransaction()) {
+            neo4jGraph.schema().awaitIndexesOnline(10L, TimeUnit.MINUTES);
+            tx.success();
+        }
+    }
+
+
     @Override
     public void massiveModeLoading(File dataPath) {
-        Insertion neo4jMassiveInsertion = new Neo4jMassiveInsertion(this.inserter);
+        if (massiveLoader == Neo4jMassiveLoader.IMPORT_TOOL) {
+            Insertion neo4jImportToolInsertion = new Neo4jImportToolInsertion(config, dbStorageDirectory);
+            neo4jImportToolInsertion.createGraph(dataPath, 0 /* scenarioNumber */);
+            return;
+        }
+        Neo4jMassiveInsertion neo4jMassiveInsertion = new Neo4jMassiveInsertion(config, this.inserter, this::restartInserter);
+        if (config.getCheckpointInterval() > 0) {
+            neo4jMassiveInsertion.enableCheckpoints(new MassiveLoadCheckpoint(dbStorageDirectory));
+        }
         neo4jMassiveInsertion.createGraph(dataPath, 0 /* scenarioNumber */);
+        massiveLoadResumedMillis = neo4jMassiveInsertion.getResumedLoadMillis();
+    }
+
+
+    /**
+     * The imported store and, with deferred indexes, the store of the batch
+     * inserter have no indexes yet. The batch inserter is closed and the
+     * indexes of the single load are built by an embedded database, which
+     * shutdownMassiveGraph closes.
+     */
+    @Override
+    public void buildMassiveIndexes() {
+        if (inserter != null) {
+            if (!config.isDeferredIndexes()) {
+                return;
+            }
+            shutdownInserter();
+        }
+        createGraphForSingleLoad();
+        try (final Transaction tx = beginUnforcedTransaction()) {
+            neo4jGraph.schema().awaitIndexesOnline(10L, TimeUnit.MINUTES);
+            tx.success();
+        }
     }
 
 
@@ -139,14 +276,28 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
     @Override
     public void delete() {
         Utils.deleteRecursively(dbStorageDirectory);
+        new MassiveLoadCheckpoint(dbStorageDirectory).delete();
     }
 
 
     @Override
     public void shutdownMassiveGraph() {
         if (inserter == null) {
-            return;
+            // the database that built the indexes is still open
+            shutdown();
+        } else {
+            if (!config.isDeferredIndexes() && config.getCheckpointInterval() > 0) {
+                // created only now, or every checkpoint would populate them again
+                createDeferredSchema();
+            }
+            shutdownInserter();
         }
+        // the load is complete, there is nothing left to resume
+        new MassiveLoadCheckpoint(dbStorageDirectory).delete();
+    }
+
+
+    private void shutdownInserter() {
         inserter.shutdown();
 
         File store_lock = new File("graphDBs/Neo4j", "store_lock");
@@ -166,13 +317,11 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
 
 
     @Override
-    public void shortestPath(Node n1, Integer i) {
-        TraversalDescription td = new MonoDirectionalTraversalDescription();
-
-        PathFinder<Path> finder = GraphAlgoFactory.shortestPath(PathExpanders.forType(RelTypes.SIMILAR), 5);
+    public int shortestPath(Node n1, Integer i) {
+        PathFinder<Path> finder = GraphAlgoFactory.shortestPath(PathExpanders.forTypeAndDirection(RelTypes.SIMILAR, Direction.OUTGOING), SHORTEST_PATH_MAX_HOPS);
         Node n2 = getVertex(i);
         Path path = finder.findSinglePath(n1, n2);
-
+        return path == null ? -1 : path.length();
     }
 
 
@@ -589,6 +738,33 @@ public class Neo4jGraphDatabase extends GraphDatabaseBase<Iterator<Node>, Iterat
     }
 
 
+    /**
+     * Node ids are dense in a store without deletions, so the partitions are
+     * ranges of ids up to the highest one in use and ids without a node are
+     * skipped.
+     */
+    @Override
+    protected void findNeighboursOfPartition(int partition, int partitions, QueryChecksum checksum) {
+        final long ids = ((GraphDatabaseAPI) neo4jGraph).getDependencyResolver().resolveDependency(IdGeneratorFactory.class)
+                .get(IdType.NODE).getHighestPossibleIdInUse() + 1;
+        final long end = partitionStart(ids, partition + 1, partitions);
+        try (final Transaction tx = beginUnforcedTransaction()) {
+            for (long id = partitionStart(ids, partition, partitions); id < end; id++) {
+                final Node node;
+                try {
+                    node = neo4jGraph.getNodeById(id);
+                } catch (NotFoundException e) {
+                    continue;
+                }
+                for (Relationship relationship : node.getRelationships(RelTypes.SIMILAR, Direction.BOTH)) {
+                    checksum.consume(relationship.getOtherNode(node));
+                }
+            }
+            tx.success();
+        }
+    }
+
+
     @Override
     public Iterator<Node> getVertexIterator() {
         return neo4jGraph.getAllNodes().iterator();
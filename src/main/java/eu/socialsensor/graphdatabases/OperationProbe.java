@@ -0,0 +1,76 @@
+package eu.socialsensor.graphdatabases;
+
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures one operation of a query loop according to the instrumentation
+ * mode. Timed operations are reported to the timer of the operation as they
+ * happen; the count is kept in a field and added to the counter of the
+ * operation on close, so that counting costs no more than an increment. Not
+ * thread safe, every loop uses probes of its own.
+ */
+final class OperationProbe implements AutoCloseable {
+
+    private final Timer timer;
+    private final Counter counter;
+    private final QueryInstrumentation mode;
+    private final int sampleInterval;
+    private long count = 0;
+    private int untilSample;
+    private long startNanos = 0;
+    private boolean timing = false;
+
+
+    OperationProbe( Timer timer, Counter counter, QueryInstrumentation mode, int sampleInterval ) {
+        this.timer = timer;
+        this.counter = counter;
+        this.mode = mode;
+        this.sampleInterval = sampleInterval;
+        this.untilSample = sampleInterval;
+    }
+
+
+    void start() {
+        switch ( mode ) {
+            case FULL:
+                count++;
+                timing = true;
+                startNanos = System.nanoTime();
+                break;
+            case SAMPLED:
+                count++;
+                if ( --untilSample == 0 ) {
+                    untilSample = sampleInterval;
+                    timing = true;
+                    startNanos = System.nanoTime();
+                }
+                break;
+            case COUNT:
+                count++;
+                break;
+            default:
+                break;
+        }
+    }
+
+
+    void stop() {
+        if ( timing ) {
+            timing = false;
+            timer.update( System.nanoTime() - startNanos, TimeUnit.NANOSECONDS );
+        }
+    }
+
+
+    @Override
+    public void close() {
+        if ( count > 0 ) {
+            counter.inc( count );
+            count = 0;
+        }
+    }
+}
@@ -7,31 +7,37 @@ import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.graph.sql.functions.OSQLFunctionShortestPath;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Parameter;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientEdgeType;
 import com.tinkerpop.blueprints.impls.orient.OrientGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
 import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
 import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import eu.socialsensor.insert.ArrivalProcess;
 import eu.socialsensor.insert.Insertion;
 import eu.socialsensor.insert.OrientMassiveInsertion;
 import eu.socialsensor.insert.OrientSingleInsertion;
+import eu.socialsensor.insert.ParallelInsertionResult;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.HdrHistogram.Histogram;
 
 
 /**
@@ -48,7 +54,7 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
 
     //
     public OrientGraphDatabase( BenchmarkConfiguration config, File dbStorageDirectoryIn ) {
-        super( GraphDatabaseType.ORIENT_DB, dbStorageDirectoryIn );
+        super( GraphDatabaseType.ORIENT_DB, config, dbStorageDirectoryIn );
         OGlobalConfiguration.STORAGE_COMPRESSION_METHOD.setValue( "nothing" );
         this.useLightWeightEdges = config.getOrientLightweightEdges() == null
                 ? true
@@ -76,24 +82,53 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
     public void createGraphForMassiveLoad() {
         OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue( false );
         graph = getGraph( dbStorageDirectory );
-        createSchema();
+        createSchema( !config.isDeferredIndexes() );
     }
 
 
     @Override
     public void massiveModeLoading( File dataPath ) {
-        OrientMassiveInsertion orientMassiveInsertion = new OrientMassiveInsertion( this.graph.getRawGraph().getURL() );
+        OrientMassiveInsertion orientMassiveInsertion = new OrientMassiveInsertion( config, this.graph.getRawGraph().getURL() );
         orientMassiveInsertion.createGraph( dataPath, 0 /* scenarioNumber */ );
     }
 
 
+    @Override
+    public void buildMassiveIndexes() {
+        if ( !config.isDeferredIndexes() ) {
+            return;
+        }
+        // the batch insert wrote through a graph of its own, reopen to see its data and schema
+        shutdown();
+        graph = getGraph( dbStorageDirectory );
+        graph.executeOutsideTx( g -> {
+            createIndexes( g );
+            return null;
+        } );
+    }
+
+
     @Override
     public void singleModeLoading( File dataPath, File resultsPath, int scenarioNumber ) {
-        Insertion orientSingleInsertion = new OrientSingleInsertion( this.graph, resultsPath );
+        Insertion orientSingleInsertion = new OrientSingleInsertion( config, this.graph, resultsPath );
         orientSingleInsertion.createGraph( dataPath, scenarioNumber );
     }
 
 
+    @Override
+    public Histogram openLoopLoading( File dataPath, double edgesPerSecond, ArrivalProcess arrivals, long maxEdges ) {
+        OrientSingleInsertion orientOpenLoopInsertion = new OrientSingleInsertion( config, this.graph, null /* resultsPath */ );
+        return orientOpenLoopInsertion.createGraphAtRate( dataPath, edgesPerSecond, arrivals, maxEdges );
+    }
+
+
+    @Override
+    public ParallelInsertionResult parallelModeLoading( File dataPath, int threads, int batchSize ) {
+        OrientSingleInsertion orientParallelInsertion = new OrientSingleInsertion( config, this.graph, null /* resultsPath */ );
+        return orientParallelInsertion.createGraphInParallel( dataPath, threads, batchSize );
+    }
+
+
     @Override
     public void shutdown() {
         if ( graph == null ) {
@@ -120,17 +155,21 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
 
 
     @Override
-    public void shortestPath( final Vertex v1, Integer i ) {
+    public int shortestPath( final Vertex v1, Integer i ) {
         final OrientVertex v2 = (OrientVertex) getVertex( i );
+        final Map<String, Object> additionalParams = new HashMap<>();
+        additionalParams.put( "maxDepth", SHORTEST_PATH_MAX_HOPS );
 
+        // the fourth argument is the edge class, the depth goes in the fifth
         List<ORID> result = new OSQLFunctionShortestPath().execute(
                 graph,
                 null,
                 null,
-                new Object[]{ ((OrientVertex) v1).getRecord(), v2.getRecord(), Direction.OUT, 5 },
+                new Object[]{ ((OrientVertex) v1).getRecord(), v2.getRecord(), Direction.OUT, SIMILAR, additionalParams },
                 new OBasicCommandContext() );
 
-        result.size();
+        // the path lists the vertexes of both ends
+        return result.size() - 1;
     }
 
 
@@ -347,19 +386,27 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
 
 
     protected void createSchema() {
+        createSchema( true );
+    }
+
+
+    /**
+     * @param withIndexes false to leave the key indexes to buildMassiveIndexes
+     */
+    private void createSchema( boolean withIndexes ) {
         graph.executeOutsideTx( g -> {
             OrientVertexType v = g.getVertexBaseType();
             if ( !v.existsProperty( NODE_ID ) ) { // TODO fix schema detection hack later
                 v.createProperty( NODE_ID, OType.INTEGER );
-                g.createKeyIndex( NODE_ID, Vertex.class, new Parameter( "type", "UNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
 
                 v.createEdgeProperty( Direction.OUT, SIMILAR, OType.LINKBAG );
                 v.createEdgeProperty( Direction.IN, SIMILAR, OType.LINKBAG );
                 OrientEdgeType similar = g.createEdgeType( SIMILAR );
                 similar.createProperty( "out", OType.LINK, v );
                 similar.createProperty( "in", OType.LINK, v );
-                g.createKeyIndex( COMMUNITY, Vertex.class, new Parameter( "type", "NOTUNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
-                g.createKeyIndex( NODE_COMMUNITY, Vertex.class, new Parameter( "type", "NOTUNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
+                if ( withIndexes ) {
+                    createIndexes( g );
+                }
             }
 
             return null;
@@ -367,6 +414,13 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
     }
 
 
+    private static void createIndexes( OrientBaseGraph g ) {
+        g.createKeyIndex( NODE_ID, Vertex.class, new Parameter( "type", "UNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
+        g.createKeyIndex( COMMUNITY, Vertex.class, new Parameter( "type", "NOTUNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
+        g.createKeyIndex( NODE_COMMUNITY, Vertex.class, new Parameter( "type", "NOTUNIQUE_HASH_INDEX" ), new Parameter( "keytype", "INTEGER" ) );
+    }
+
+
     private OrientGraph getGraph( final File dbPath ) {
         OrientGraph g;
         OrientGraphFactory graphFactory = new OrientGraphFactory( "plocal:" + dbPath.getAbsolutePath() );
@@ -383,6 +437,33 @@ public class OrientGraphDatabase extends GraphDatabaseBase<Iterator<Vertex>, Ite
     }
 
 
+    /**
+     * The partitions are the clusters of the vertex class, dealt out in
+     * turn, so there are at most as many busy threads as vertex clusters.
+     * OrientGraph instances must not be shared between threads, every reader
+     * opens its own.
+     */
+    @Override
+    protected void findNeighboursOfPartition( int partition, int partitions, QueryChecksum checksum ) {
+        final OrientGraph readerGraph = getGraph( dbStorageDirectory );
+        try {
+            final int[] clusterIds = readerGraph.getVertexBaseType().getClusterIds().clone();
+            Arrays.sort( clusterIds );
+            for ( int i = partition; i < clusterIds.length; i += partitions ) {
+                final String cluster = readerGraph.getRawGraph().getClusterNameById( clusterIds[i] );
+                for ( ODocument document : readerGraph.getRawGraph().browseCluster( cluster ) ) {
+                    final Vertex vertex = readerGraph.getVertex( document );
+                    for ( Edge edge : vertex.getEdges( Direction.BOTH, SIMILAR ) ) {
+                        checksum.consume( getOtherVertexFromEdge( edge, vertex ) );
+                    }
+                }
+            }
+        } finally {
+            readerGraph.shutdown();
+        }
+    }
+
+
     @Override
     public Iterator<Vertex> getVertexIterator() {
         return graph.getVertices().iterator();
@@ -0,0 +1,91 @@
+package eu.socialsensor.graphdatabases;
+
+
+/**
+ * Sink for the results of a query run and a cheap checksum of the work it
+ * did. Every consumed result goes into a hash sum that is published to a
+ * volatile field at the end of the run, so the JIT cannot prove the results
+ * dead and eliminate the work that produced them. The number of results and
+ * the sum of the path lengths do not depend on the backend and tell whether
+ * two databases did equivalent work; the hash sum is made of vendor specific
+ * ids and only compares runs of the same database. Not thread safe.
+ */
+public final class QueryChecksum {
+
+    @SuppressWarnings( "unused" )
+    private static volatile long sink;
+
+    private long results = 0;
+    private long lengths = 0;
+    private long hash = 0;
+
+
+    /**
+     * Consumes a vertex or edge visited by the query
+     */
+    public void consume( Object result ) {
+        results++;
+        hash += result.hashCode();
+    }
+
+
+    /**
+     * Consumes the length of a shortest path in hops, negative if there is
+     * no path
+     */
+    public void consumePath( int length ) {
+        if ( length >= 0 ) {
+            results++;
+            lengths += length;
+        }
+    }
+
+
+    /**
+     * Adds the work of a part of the run, such as one reader thread
+     */
+    public void add( QueryChecksum other ) {
+        results += other.results;
+        lengths += other.lengths;
+        hash += other.hash;
+    }
+
+
+    /**
+     * Ends the run
+     */
+    public QueryChecksum publish() {
+        sink = hash;
+        return this;
+    }
+
+
+    public long getResults() {
+        return results;
+    }
+
+
+    public long getLengths() {
+        return lengths;
+    }
+
+
+    public long getHash() {
+        return hash;
+    }
+
+
+    /**
+     * @return true if the other run did the same work, possibly on another
+     * database
+     */
+    public boolean isEquivalent( QueryChecksum other ) {
+        return results == other.results && lengths == other.lengths;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format( "%d results, %d path hops, hash %016x", results, lengths, hash );
+    }
+}
@@ -0,0 +1,24 @@
+package eu.socialsensor.graphdatabases;
+
+
+/**
+ * How the inner loops of the query benchmarks measure their operations
+ */
+public enum QueryInstrumentation {
+    /**
+     * Times every operation
+     */
+    FULL,
+    /**
+     * Times one in every sample interval operations and counts all of them
+     */
+    SAMPLED,
+    /**
+     * Counts the operations without timing them
+     */
+    COUNT,
+    /**
+     * No measurement, only the wall clock time of the whole query
+     */
+    NONE
+}
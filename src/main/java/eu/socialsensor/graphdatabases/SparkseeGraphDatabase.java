@@ -15,8 +15,14 @@ import com.sparsity.sparksee.gdb.Session;
 import com.sparsity.sparksee.gdb.Sparksee;
 import com.sparsity.sparksee.gdb.SparkseeConfig;
 import com.sparsity.sparksee.gdb.Value;
+import eu.socialsensor.insert.ArrivalProcess;
 import eu.socialsensor.insert.Insertion;
+import eu.socialsensor.insert.ParallelInsertionResult;
+import eu.socialsensor.insert.PropertyPayload;
+import eu.socialsensor.insert.PropertyType;
+import eu.socialsensor.insert.SparkseeBulkLoadInsertion;
 import eu.socialsensor.insert.SparkseeMassiveInsertion;
+import eu.socialsensor.insert.SparkseeMassiveLoader;
 import eu.socialsensor.insert.SparkseeSingleInsertion;
 import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkingException;
@@ -30,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.HdrHistogram.Histogram;
 
 
 /**
@@ -55,6 +62,7 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
     private Database database;
     private Session session;
     private Graph sparkseeGraph;
+    private SparkseeMassiveLoader massiveLoader;
 
     public static int NODE_ATTRIBUTE;
     public static int COMMUNITY_ATTRIBUTE;
@@ -64,12 +72,17 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
 
     public static int EDGE_TYPE;
 
+    // attributes of the synthetic payload, in the order of the properties
+    public static int[] VERTEX_PAYLOAD_ATTRIBUTES = new int[0];
+    public static int[] EDGE_PAYLOAD_ATTRIBUTES = new int[0];
+
     Value value = new Value();
 
 
     public SparkseeGraphDatabase( BenchmarkConfiguration config, File dbStorageDirectoryIn ) {
-        super( GraphDatabaseType.SPARKSEE, dbStorageDirectoryIn );
+        super( GraphDatabaseType.SPARKSEE, config, dbStorageDirectoryIn );
         this.sparkseeLicenseKey = config.getSparkseeLicenseKey();
+        this.massiveLoader = config.getSparkseeMassiveLoaders().get( 0 );
     }
 
 
@@ -112,6 +125,15 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
     }
 
 
+    /**
+     * Selects how createGraphForMassiveLoad and massiveModeLoading build the
+     * database, the first configured loader by default
+     */
+    public void setMassiveLoader( SparkseeMassiveLoader massiveLoader ) {
+        this.massiveLoader = massiveLoader;
+    }
+
+
     @Override
     public void createGraphForMassiveLoad() {
         // maybe some more configuration?
@@ -123,7 +145,7 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
             database = sparksee.create( getDbFile( dbStorageDirectory ), "SparkseeDB" );
             session = database.newSession();
             sparkseeGraph = session.getGraph();
-            createSchema();
+            createSchema( massiveLoader.hasMaterializedNeighbors(), config.isDeferredIndexes() );
         } catch ( FileNotFoundException e ) {
             e.printStackTrace();
         }
@@ -131,28 +153,139 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
 
 
     private void createSchema() {
+        createSchema( false, false );
+    }
+
+
+    /**
+     * @param deferredIndexes true to leave the community indexes to
+     * buildMassiveIndexes. The node id stays unique, both massive loaders
+     * find the endpoints of the edges by it.
+     */
+    private void createSchema( boolean materializedNeighbors, boolean deferredIndexes ) {
+        final AttributeKind communityKind = deferredIndexes ? AttributeKind.Basic : AttributeKind.Indexed;
         NODE_TYPE = sparkseeGraph.newNodeType( NODE );
         NODE_ATTRIBUTE = sparkseeGraph.newAttribute( NODE_TYPE, NODE_ID, DataType.String, AttributeKind.Unique );
-        EDGE_TYPE = sparkseeGraph.newEdgeType( SIMILAR, true, false );
-        COMMUNITY_ATTRIBUTE = sparkseeGraph.newAttribute( NODE_TYPE, COMMUNITY, DataType.Integer, AttributeKind.Indexed );
-        NODE_COMMUNITY_ATTRIBUTE = sparkseeGraph.newAttribute( NODE_TYPE, NODE_COMMUNITY, DataType.Integer, AttributeKind.Indexed );
+        EDGE_TYPE = sparkseeGraph.newEdgeType( SIMILAR, true, materializedNeighbors );
+        COMMUNITY_ATTRIBUTE = sparkseeGraph.newAttribute( NODE_TYPE, COMMUNITY, DataType.Integer, communityKind );
+        NODE_COMMUNITY_ATTRIBUTE = sparkseeGraph.newAttribute( NODE_TYPE, NODE_COMMUNITY, DataType.Integer, communityKind );
+
+        final PropertyPayload payload = new PropertyPayload( config );
+        VERTEX_PAYLOAD_ATTRIBUTES = new int[payload.getVertexPropertyCount()];
+        for ( int i = 0; i < VERTEX_PAYLOAD_ATTRIBUTES.length; i++ ) {
+            VERTEX_PAYLOAD_ATTRIBUTES[i] = sparkseeGraph.newAttribute( NODE_TYPE, payload.getVertexKey( i ), dataType( payload.getVertexType( i ) ), AttributeKind.Basic );
+        }
+        EDGE_PAYLOAD_ATTRIBUTES = new int[payload.getEdgePropertyCount()];
+        for ( int i = 0; i < EDGE_PAYLOAD_ATTRIBUTES.length; i++ ) {
+            EDGE_PAYLOAD_ATTRIBUTES[i] = sparkseeGraph.newAttribute( EDGE_TYPE, payload.getEdgeKey( i ), dataType( payload.getEdgeType( i ) ), AttributeKind.Basic );
+        }
+    }
+
+
+    private static DataType dataType( PropertyType type ) {
+        switch ( type ) {
+            case INTEGER:
+                return DataType.Integer;
+            case LONG:
+                return DataType.Long;
+            case DOUBLE:
+                return DataType.Double;
+            case STRING:
+                return DataType.String;
+            default:
+                throw new IllegalArgumentException( "unsupported property type " + type );
+        }
+    }
+
+
+    /**
+     * Finds the node of the dataset id, or creates it with its payload
+     */
+    public static long findOrCreateNode( Graph graph, Value value, int nodeId, PropertyPayload payload ) {
+        if ( payload.getVertexPropertyCount() == 0 ) {
+            return graph.findOrCreateObject( NODE_ATTRIBUTE, value.setString( Integer.toString( nodeId ) ) );
+        }
+        long node = graph.findObject( NODE_ATTRIBUTE, value.setString( Integer.toString( nodeId ) ) );
+        if ( node == Objects.InvalidOID ) {
+            node = graph.newNode( NODE_TYPE );
+            graph.setAttribute( node, NODE_ATTRIBUTE, value );
+            for ( int i = 0; i < VERTEX_PAYLOAD_ATTRIBUTES.length; i++ ) {
+                graph.setAttribute( node, VERTEX_PAYLOAD_ATTRIBUTES[i], toValue( value, payload.getVertexValue( nodeId, i ) ) );
+            }
+        }
+        return node;
+    }
+
+
+    /**
+     * Creates an edge with its payload
+     *
+     * @param edgeSeed the seed of the payload, from the dataset ids of the endpoints
+     */
+    public static long newEdge( Graph graph, Value value, long src, long dest, long edgeSeed, PropertyPayload payload ) {
+        final long edge = graph.newEdge( EDGE_TYPE, src, dest );
+        for ( int i = 0; i < EDGE_PAYLOAD_ATTRIBUTES.length; i++ ) {
+            graph.setAttribute( edge, EDGE_PAYLOAD_ATTRIBUTES[i], toValue( value, payload.getEdgeValue( edgeSeed, i ) ) );
+        }
+        return edge;
+    }
+
+
+    private static Value toValue( Value value, Object property ) {
+        if ( property instanceof Integer ) {
+            return value.setInteger( (Integer) property );
+        } else if ( property instanceof Long ) {
+            return value.setLong( (Long) property );
+        } else if ( property instanceof Double ) {
+            return value.setDouble( (Double) property );
+        }
+        return value.setString( property.toString() );
     }
 
 
     @Override
     public void massiveModeLoading( File dataPath ) {
-        Insertion sparkseeMassiveInsertion = new SparkseeMassiveInsertion( session );
+        if ( massiveLoader != SparkseeMassiveLoader.PER_CALL ) {
+            Insertion sparkseeBulkLoadInsertion = new SparkseeBulkLoadInsertion( config, sparkseeGraph, dbStorageDirectory );
+            sparkseeBulkLoadInsertion.createGraph( dataPath, 0 /* scenarioNumber */ );
+            return;
+        }
+        Insertion sparkseeMassiveInsertion = new SparkseeMassiveInsertion( config, session );
         sparkseeMassiveInsertion.createGraph( dataPath, 0 /* scenarioNumber */ );
     }
 
 
+    @Override
+    public void buildMassiveIndexes() {
+        if ( !config.isDeferredIndexes() ) {
+            return;
+        }
+        sparkseeGraph.indexAttribute( COMMUNITY_ATTRIBUTE, AttributeKind.Indexed );
+        sparkseeGraph.indexAttribute( NODE_COMMUNITY_ATTRIBUTE, AttributeKind.Indexed );
+    }
+
+
     @Override
     public void singleModeLoading( File dataPath, File resultsPath, int scenarioNumber ) {
-        Insertion sparkseeSingleInsertion = new SparkseeSingleInsertion( this.session, resultsPath );
+        Insertion sparkseeSingleInsertion = new SparkseeSingleInsertion( config, this.database, this.session, resultsPath );
         sparkseeSingleInsertion.createGraph( dataPath, scenarioNumber );
     }
 
 
+    @Override
+    public Histogram openLoopLoading( File dataPath, double edgesPerSecond, ArrivalProcess arrivals, long maxEdges ) {
+        SparkseeSingleInsertion sparkseeOpenLoopInsertion = new SparkseeSingleInsertion( config, this.database, this.session, null /* resultsPath */ );
+        return sparkseeOpenLoopInsertion.createGraphAtRate( dataPath, edgesPerSecond, arrivals, maxEdges );
+    }
+
+
+    @Override
+    public ParallelInsertionResult parallelModeLoading( File dataPath, int threads, int batchSize ) {
+        SparkseeSingleInsertion sparkseeParallelInsertion = new SparkseeSingleInsertion( config, this.database, this.session, null /* resultsPath */ );
+        return sparkseeParallelInsertion.createGraphInParallel( dataPath, threads, batchSize );
+    }
+
+
     @Override
     public void shutdown() {
         if ( session != null ) {
@@ -180,7 +313,7 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
 
 
     @Override
-    public void shortestPath( final Long srcNodeID, Integer i ) {
+    public int shortestPath( final Long srcNodeID, Integer i ) {
         int nodeType = sparkseeGraph.findType( NODE );
         int edgeType = sparkseeGraph.findType( SIMILAR );
 
@@ -188,9 +321,11 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
         SinglePairShortestPathBFS shortestPathBFS = new SinglePairShortestPathBFS( session, srcNodeID, dstNodeID );
         shortestPathBFS.addNodeType( nodeType );
         shortestPathBFS.addEdgeType( edgeType, EdgesDirection.Outgoing );
-        shortestPathBFS.setMaximumHops( 4 );
+        shortestPathBFS.setMaximumHops( SHORTEST_PATH_MAX_HOPS );
         shortestPathBFS.run();
+        final int length = shortestPathBFS.exists() ? (int) shortestPathBFS.getPathAsNodes().count() - 1 : -1;
         shortestPathBFS.close();
+        return length;
     }
 
 
@@ -469,6 +604,43 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
     }
 
 
+    /**
+     * The partitions are index ranges of the nodes selected by type.
+     * Sessions must not be shared between threads in Sparksee, every reader
+     * opens its own and reads in a transaction.
+     */
+    @Override
+    protected void findNeighboursOfPartition( int partition, int partitions, QueryChecksum checksum ) {
+        final Session readerSession = database.newSession();
+        try {
+            final Graph graph = readerSession.getGraph();
+            final int nodeType = graph.findType( NODE );
+            final int edgeType = graph.findType( SIMILAR );
+            readerSession.begin();
+            final Objects nodes = graph.select( nodeType );
+            final long start = partitionStart( nodes.count(), partition, partitions );
+            final long end = partitionStart( nodes.count(), partition + 1, partitions );
+            final ObjectsIterator nodesIter = nodes.iteratorFromIndex( start );
+            for ( long i = start; i < end && nodesIter.hasNext(); i++ ) {
+                final long node = nodesIter.next();
+                // one neighbour per edge, like the other databases
+                final Objects edges = graph.explode( node, edgeType, EdgesDirection.Any );
+                final ObjectsIterator edgesIter = edges.iterator();
+                while ( edgesIter.hasNext() ) {
+                    checksum.consume( graph.getEdgePeer( edgesIter.next(), node ) );
+                }
+                edgesIter.close();
+                edges.close();
+            }
+            nodesIter.close();
+            nodes.close();
+            readerSession.commit();
+        } finally {
+            readerSession.close();
+        }
+    }
+
+
     @Override
     public ObjectsIterator getVertexIterator() {
         final int nodeType = sparkseeGraph.findType( NODE );
@@ -477,11 +649,15 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
     }
 
 
+    /**
+     * Iterates the edges rather than the distinct neighbours, so duplicate and
+     * reciprocal edges count once each, like in the other databases
+     */
     @Override
     public ObjectsIterator getNeighborsOfVertex( Long v ) {
         final int edgeType = sparkseeGraph.findType( SIMILAR );
-        final Objects neighbors = sparkseeGraph.neighbors( v, edgeType, EdgesDirection.Any );
-        return neighbors.iterator();
+        final Objects edges = sparkseeGraph.explode( v, edgeType, EdgesDirection.Any );
+        return edges.iterator();
     }
 
 
@@ -493,7 +669,7 @@ public class SparkseeGraphDatabase extends GraphDatabaseBase<ObjectsIterator, Ob
 
     @Override
     public Long getOtherVertexFromEdge( Long r, Long oneVertex ) {
-        return r; //pass through
+        return sparkseeGraph.getEdgePeer( r, oneVertex );
     }
 
 
@@ -0,0 +1,39 @@
+package eu.socialsensor.insert;
+
+
+import java.util.Random;
+
+
+/**
+ * When the open loop insertion sends the next edge
+ */
+public enum ArrivalProcess {
+    /**
+     * One edge every 1/rate seconds
+     */
+    FIXED,
+    /**
+     * Exponentially distributed gaps with a mean of 1/rate seconds
+     */
+    POISSON;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+
+    /**
+     * @param edgesPerSecond the mean arrival rate
+     * @return the gap to the next arrival in nanoseconds
+     */
+    public long nextGapNanos( double edgesPerSecond, Random random ) {
+        final double meanGap = NANOS_PER_SECOND / edgesPerSecond;
+        switch ( this ) {
+            case FIXED:
+                return Math.round( meanGap );
+            case POISSON:
+                // inverse transform sampling, 1 - u is never 0
+                return Math.round( -Math.log( 1 - random.nextDouble() ) * meanGap );
+            default:
+                throw new IllegalArgumentException( "unsupported arrival process " + this );
+        }
+    }
+}
@@ -1,18 +1,40 @@
 package eu.socialsensor.insert;
 
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Timer;
 import com.google.common.base.Stopwatch;
 import eu.socialsensor.benchmarks.SingleInsertionBenchmark;
 import eu.socialsensor.dataset.Dataset;
 import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.dataset.DatasetStatistics;
+import eu.socialsensor.dataset.EdgeArrays;
+import eu.socialsensor.dataset.EdgeCursor;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseBenchmark;
 import eu.socialsensor.main.GraphDatabaseType;
 import eu.socialsensor.utils.Utils;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.math3.stat.descriptive.AggregateSummaryStatistics;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -27,25 +49,60 @@ public abstract class InsertionBase<T> implements Insertion {
 
     private static final Logger logger = LogManager.getLogger();
     public static final String INSERTION_CONTEXT = ".eu.socialsensor.insertion.";
+    // marks the end of the dataset in the queue of edge batches
+    private static final EdgeArrays END_OF_DATA = new EdgeArrays( 0 );
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+    // the open loop spins instead of parking when the next arrival is this close
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+    private static final long ARRIVAL_SEED = 1L;
     private final Timer getOrCreateTimes;
     private final Timer relateNodesTimes;
+    private final String hitRatioName;
+    // per operation latencies of the scenario, single insertion only
+    private final Histogram getOrCreateLatencies;
+    private final Histogram relateNodesLatencies;
+    private final Histogram commitLatencies;
 
+    protected final BenchmarkConfiguration config;
     protected final GraphDatabaseType type;
     protected final List<Double> insertionTimes;
+    // synthetic properties of the created vertexes and edges
+    protected final PropertyPayload payload;
     private final boolean single;
+    private final String variant;
 
     // to write intermediate times for SingleInsertion subclasses
     protected final File resultsPath;
 
+    // massive insertion only, null without checkpoints
+    private MassiveLoadCheckpoint checkpoint = null;
+    private long resumedLoadMillis = 0;
 
-    protected InsertionBase( GraphDatabaseType type, File resultsPath ) {
+
+    protected InsertionBase( BenchmarkConfiguration config, GraphDatabaseType type, File resultsPath ) {
+        this( config, type, resultsPath, null );
+    }
+
+
+    /**
+     * @param variant tells apart the metrics and times of alternative
+     * implementations for the same database, null if there are none
+     */
+    protected InsertionBase( BenchmarkConfiguration config, GraphDatabaseType type, File resultsPath, String variant ) {
+        this.config = config;
         this.type = type;
         this.insertionTimes = new ArrayList<>();
+        this.payload = new PropertyPayload( config );
         this.resultsPath = resultsPath;
         this.single = resultsPath != null;
-        final String insertionTypeCtxt = type.getShortname() + INSERTION_CONTEXT + (single ? "adhoc." : "batch.");
+        this.variant = variant;
+        final String insertionTypeCtxt = type.getShortname() + INSERTION_CONTEXT + (single ? "adhoc." : "batch.") + (variant == null ? "" : variant + ".");
         this.getOrCreateTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "getOrCreate" );
         this.relateNodesTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "relateNodes" );
+        this.hitRatioName = insertionTypeCtxt + "vertexCache.hitRatio";
+        this.getOrCreateLatencies = single ? InsertionLatencies.newHistogram( "getOrCreate" ) : null;
+        this.relateNodesLatencies = single ? InsertionLatencies.newHistogram( "relateNodes" ) : null;
+        this.commitLatencies = single ? InsertionLatencies.newHistogram( "commit" ) : null;
     }
 
 
@@ -55,12 +112,44 @@ public abstract class InsertionBase<T> implements Insertion {
      * @param value the identifier of the vertex
      * @return the id of the created vertex
      */
-    protected abstract T getOrCreate( final String value );
+    protected abstract T getOrCreate( final int value );
 
     /**
+     * Relates two vertexes
      *
+     * @param edgeSeed seeds the payload of the edge, from the dataset ids of
+     * the endpoints
+     * @see PropertyPayload#edgeSeed(int, int)
+     */
+    protected abstract void relateNodes( final T src, final T dest, final long edgeSeed );
+
+
+    /**
+     * loaders that can size their structures up front get the statistics of
+     * the dataset before the first edge. this is the hook.
      */
-    protected abstract void relateNodes( final T src, final T dest );
+    protected void prepare( DatasetStatistics statistics ) {
+        // NOOP
+    }
+
+
+    /**
+     * @return whether prepare should be called. computing the statistics
+     * takes a pass over the dataset when its sidecar file is missing, so only
+     * loaders that use them opt in.
+     */
+    protected boolean needsStatistics() {
+        return false;
+    }
+
+
+    private void prepareFor( Dataset dataset ) {
+        if ( needsStatistics() ) {
+            final DatasetStatistics statistics = dataset.getStatistics();
+            logger.info( "Dataset statistics: {}", statistics );
+            prepare( statistics );
+        }
+    }
 
 
     /**
@@ -72,50 +161,465 @@ public abstract class InsertionBase<T> implements Insertion {
     }
 
 
+    /**
+     * Brings everything inserted so far to a consistent state on disk, so the
+     * store can be copied for a checkpoint. Insertions that support
+     * checkpoints implement this together with saveState and restoreState.
+     * The default is never reached, because the configuration rejects a
+     * checkpoint interval for databases without
+     * {@link GraphDatabaseType#supportsCheckpoints()}.
+     */
+    protected void flush() {
+        throw new UnsupportedOperationException( type.name() + " does not support checkpoints" );
+    }
+
+
+    /**
+     * Writes the state the insertion needs to resume from a checkpoint, after
+     * flush
+     */
+    protected void saveState( DataOutputStream out ) throws IOException {
+        // NOOP
+    }
+
+
+    /**
+     * Reads the state written by saveState, after prepare
+     */
+    protected void restoreState( DataInputStream in ) throws IOException {
+        // NOOP
+    }
+
+
+    /**
+     * Checkpoints the massive load every configured number of edges. If the
+     * checkpoint already exists, the store has been restored from it and the
+     * load resumes after the edges it holds.
+     */
+    public final void enableCheckpoints( MassiveLoadCheckpoint checkpoint ) {
+        this.checkpoint = checkpoint;
+    }
+
+
+    /**
+     * @return the load time in milliseconds spent before the checkpoint this
+     * load resumed from, 0 if it started from scratch. The time lost after
+     * the checkpoint is not part of it.
+     */
+    public final long getResumedLoadMillis() {
+        return resumedLoadMillis;
+    }
+
+
+    /**
+     * Commits through the given action, recording its latency in the single
+     * insertion. getOrCreate and relateNodes commit their own transactions
+     * there, so their latencies include the commit.
+     */
+    protected final void commit( Runnable commit ) {
+        if ( commitLatencies == null ) {
+            commit.run();
+            return;
+        }
+        final long start = System.nanoTime();
+        commit.run();
+        commitLatencies.recordValue( System.nanoTime() - start );
+    }
+
+
+    /**
+     * Opens a writer with its own transaction or session for the parallel
+     * insertion mode. Called once on every writer thread, so databases that
+     * bind transactions to threads can do so here.
+     */
+    protected abstract InsertionWriter<T> openWriter();
+
+
+    /**
+     * @return true if the batch failed because of a lock or uniqueness
+     * conflict with another writer and should be retried
+     */
+    protected boolean isConflict( RuntimeException e ) {
+        return false;
+    }
+
+
+    /**
+     * @return true if the throwable or one of its causes is an instance of one
+     * of the types
+     */
+    @SafeVarargs
+    protected static boolean causedBy( Throwable throwable, Class<? extends Throwable>... types ) {
+        for ( Throwable t = throwable; t != null; t = t.getCause() ) {
+            for ( Class<? extends Throwable> type : types ) {
+                if ( type.isInstance( t ) ) {
+                    return true;
+                }
+            }
+            if ( t.getCause() == t ) {
+                break;
+            }
+        }
+        return false;
+    }
+
+
     public final void createGraph( File datasetFile, int scenarioNumber ) {
         logger.info( "Loading data in {} mode in {} database . . . .", single ? "single" : "massive", type.name() );
-        Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile );
+        Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() );
+        prepareFor( dataset );
+        final long checkpointInterval = single || checkpoint == null ? 0 : config.getCheckpointInterval();
+        long resumeAt = 0;
+        if ( checkpointInterval > 0 && checkpoint.exists() ) {
+            try {
+                final long[] resumed = checkpoint.read( this::restoreState );
+                resumeAt = resumed[0];
+                resumedLoadMillis = resumed[1];
+            } catch ( IOException e ) {
+                throw new BenchmarkingException( "unable to read the checkpoint of " + type.name(), e );
+            }
+            logger.info( "Resuming the load after {} edges and {} ms of loading before the checkpoint", resumeAt, resumedLoadMillis );
+        }
+        final VertexCache<T> cache = single && config.getInsertionVertexCacheSize() > 0 ? new VertexCache<>( config.getInsertionVertexCacheSize() ) : null;
+        if ( cache != null ) {
+            // a gauge of the previous scenario would still read its own cache
+            GraphDatabaseBenchmark.metrics.remove( hitRatioName );
+            GraphDatabaseBenchmark.metrics.register( hitRatioName, (Gauge<Double>) cache::getHitRatio );
+        }
 
         T srcNode, dstNode;
         Stopwatch thousandWatch = Stopwatch.createUnstarted(), watch = Stopwatch.createUnstarted();
         thousandWatch.start();
         watch.start();
         int i = 4;
-        for ( List<String> line : dataset ) {
-            final Timer.Context contextSrc = getOrCreateTimes.time();
-            try {
-                srcNode = getOrCreate( line.get( 0 ) );
-            } finally {
-                contextSrc.stop();
+        long edge = 0;
+        try ( EdgeCursor edges = dataset.cursor() ) {
+            while ( edge < resumeAt && edges.next() ) {
+                edge++;
             }
+            while ( edges.next() ) {
+                final Timer.Context contextSrc = getOrCreateTimes.time();
+                try {
+                    srcNode = getOrCreate( cache, edges.getSource() );
+                } finally {
+                    record( getOrCreateLatencies, contextSrc.stop() );
+                }
 
-            final Timer.Context contextDest = getOrCreateTimes.time();
-            try {
-                dstNode = getOrCreate( line.get( 1 ) );
-            } finally {
-                contextDest.stop();
-            }
+                final Timer.Context contextDest = getOrCreateTimes.time();
+                try {
+                    dstNode = getOrCreate( cache, edges.getDestination() );
+                } finally {
+                    record( getOrCreateLatencies, contextDest.stop() );
+                }
 
-            final Timer.Context contextRelate = relateNodesTimes.time();
-            try {
-                relateNodes( srcNode, dstNode );
-            } finally {
-                contextRelate.stop();
-            }
+                final Timer.Context contextRelate = relateNodesTimes.time();
+                try {
+                    relateNodes( srcNode, dstNode, PropertyPayload.edgeSeed( edges.getSource(), edges.getDestination() ) );
+                } finally {
+                    record( relateNodesLatencies, contextRelate.stop() );
+                }
+
+                if ( i % 1000 == 0 ) {
+                    insertionTimes.add( (double) thousandWatch.elapsed( TimeUnit.MILLISECONDS ) );
+                    thousandWatch.stop();
+                    thousandWatch = Stopwatch.createUnstarted();
+                    thousandWatch.start();
+                }
+                i++;
 
-            if ( i % 1000 == 0 ) {
-                insertionTimes.add( (double) thousandWatch.elapsed( TimeUnit.MILLISECONDS ) );
-                thousandWatch.stop();
-                thousandWatch = Stopwatch.createUnstarted();
-                thousandWatch.start();
+                edge++;
+                if ( checkpointInterval > 0 && edge % checkpointInterval == 0 ) {
+                    writeCheckpoint( edge, resumedLoadMillis + watch.elapsed( TimeUnit.MILLISECONDS ) );
+                }
             }
-            i++;
         }
         post();
         insertionTimes.add( (double) watch.elapsed( TimeUnit.MILLISECONDS ) );
+        if ( cache != null ) {
+            logger.info( "Vertex cache of {} entries: {} hits, {} misses, hit ratio {}", config.getInsertionVertexCacheSize(), cache.getHits(), cache.getMisses(), cache.getHitRatio() );
+        }
 
         if ( single ) {
-            Utils.writeTimes( insertionTimes, new File( resultsPath, SingleInsertionBenchmark.INSERTION_TIMES_OUTPUT_FILE_NAME_BASE + "." + type.getShortname() + "." + scenarioNumber ) );
+            Utils.writeTimes( insertionTimes, new File( resultsPath, SingleInsertionBenchmark.getTimesFileNamePrefix( type, variant ) + "." + scenarioNumber ) );
+            final InsertionLatencies latencies = InsertionLatencies.get( SingleInsertionBenchmark.getLatenciesFileNamePrefix( type, variant ) );
+            latencies.add( getOrCreateLatencies );
+            latencies.add( relateNodesLatencies );
+            latencies.add( commitLatencies );
+        }
+    }
+
+
+    private void writeCheckpoint( long edges, long loadMillis ) {
+        final Stopwatch checkpointWatch = Stopwatch.createStarted();
+        flush();
+        try {
+            checkpoint.write( edges, loadMillis, this::saveState );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to write the checkpoint of " + type.name(), e );
+        }
+        logger.info( "Checkpoint after {} edges took {} ms", edges, checkpointWatch.elapsed( TimeUnit.MILLISECONDS ) );
+    }
+
+
+    private static void record( Histogram latencies, long nanos ) {
+        if ( latencies != null ) {
+            latencies.recordValue( nanos );
+        }
+    }
+
+
+    /**
+     * Looks the vertex up in the cache, if there is one, before asking the
+     * database. Only vertexes that getOrCreate returned are cached, and in the
+     * single insertion mode it commits them before it returns.
+     */
+    private T getOrCreate( VertexCache<T> cache, int value ) {
+        if ( cache == null ) {
+            return getOrCreate( value );
+        }
+        T vertex = cache.get( value );
+        if ( vertex == null ) {
+            vertex = getOrCreate( value );
+            cache.put( value, vertex );
+        }
+        return vertex;
+    }
+
+
+    /**
+     * Inserts the edges in an open loop: they arrive at the given rate, no
+     * matter how fast the database takes them, and the latency of every edge
+     * runs from its intended arrival until its relationship is committed. An
+     * insertion that stalls delays the edges behind it, and that delay is
+     * part of their latency instead of being hidden by a slower send rate.
+     *
+     * @param maxEdges edges to insert, 0 for the whole dataset
+     * @return the latencies of the edges in nanoseconds, with the start and end
+     * of the load as time stamps
+     */
+    public final Histogram createGraphAtRate( File datasetFile, double edgesPerSecond, ArrivalProcess arrivals, long maxEdges ) {
+        logger.info( "Loading data at {} edges/s with {} arrivals in {} database . . . .", edgesPerSecond, arrivals, type.name() );
+        Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() );
+        prepareFor( dataset );
+
+        final String insertionTypeCtxt = type.getShortname() + INSERTION_CONTEXT + "openloop." + (variant == null ? "" : variant + ".");
+        final Timer getOrCreateTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "getOrCreate" );
+        final Timer relateNodesTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "relateNodes" );
+        final Random random = new Random( ARRIVAL_SEED );
+        final Histogram latencies = new Histogram( InsertionLatencies.SIGNIFICANT_DIGITS );
+        latencies.setStartTimeStamp( System.currentTimeMillis() );
+        long arrival = System.nanoTime();
+        long edge = 0;
+        try ( EdgeCursor edges = dataset.cursor() ) {
+            while ( (maxEdges == 0 || edge < maxEdges) && edges.next() ) {
+                arrival += arrivals.nextGapNanos( edgesPerSecond, random );
+                awaitArrival( arrival );
+
+                final T srcNode, dstNode;
+                Timer.Context ctxt = getOrCreateTimes.time();
+                try {
+                    srcNode = getOrCreate( edges.getSource() );
+                } finally {
+                    ctxt.stop();
+                }
+
+                ctxt = getOrCreateTimes.time();
+                try {
+                    dstNode = getOrCreate( edges.getDestination() );
+                } finally {
+                    ctxt.stop();
+                }
+
+                ctxt = relateNodesTimes.time();
+                try {
+                    relateNodes( srcNode, dstNode, PropertyPayload.edgeSeed( edges.getSource(), edges.getDestination() ) );
+                } finally {
+                    ctxt.stop();
+                }
+                latencies.recordValue( System.nanoTime() - arrival );
+                edge++;
+            }
+        }
+        post();
+        latencies.setEndTimeStamp( System.currentTimeMillis() );
+        return latencies;
+    }
+
+
+    private static void awaitArrival( long arrival ) {
+        for ( long remaining = arrival - System.nanoTime(); remaining > 0; remaining = arrival - System.nanoTime() ) {
+            if ( remaining > SPIN_NANOS ) {
+                LockSupport.parkNanos( remaining - SPIN_NANOS );
+            }
+        }
+    }
+
+
+    /**
+     * Loads the dataset with a pool of writer threads. The calling thread cuts
+     * the edges into batches and puts them on a bounded queue, and every
+     * writer takes batches from the queue and inserts each one in a
+     * transaction of its own. Batches that fail because of a conflict with
+     * another writer are rolled back and retried up to the configured number
+     * of times.
+     *
+     * @param batchSize edges per transaction
+     * @return the number of inserted edges and the commit latencies of all
+     * writers
+     */
+    public final ParallelInsertionResult createGraphInParallel( File datasetFile, int threads, int batchSize ) {
+        logger.info( "Loading data with {} writer threads in {} database . . . .", threads, type.name() );
+        Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() );
+        prepareFor( dataset );
+
+        final BlockingQueue<EdgeArrays> batches = new ArrayBlockingQueue<>( 2 * threads );
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool( threads, runnable -> {
+            final Thread thread = new Thread( runnable, type.getShortname() + "-writer-" + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        final List<WriterTask> tasks = new ArrayList<>( threads );
+        final List<Future<?>> writers = new ArrayList<>( threads );
+        for ( int i = 0; i < threads; i++ ) {
+            final WriterTask task = new WriterTask( batches );
+            tasks.add( task );
+            writers.add( pool.submit( task ) );
+        }
+
+        long edgeCount = 0;
+        try {
+            try ( EdgeCursor edges = dataset.cursor() ) {
+                EdgeArrays batch = new EdgeArrays( batchSize );
+                while ( edges.next() ) {
+                    batch.add( edges.getSource(), edges.getDestination() );
+                    edgeCount++;
+                    if ( batch.size() == batchSize ) {
+                        enqueue( batches, batch, writers );
+                        batch = new EdgeArrays( batchSize );
+                    }
+                }
+                if ( batch.size() > 0 ) {
+                    enqueue( batches, batch, writers );
+                }
+            }
+            for ( int i = 0; i < threads; i++ ) {
+                enqueue( batches, END_OF_DATA, writers );
+            }
+            for ( Future<?> writer : writers ) {
+                writer.get();
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new BenchmarkingException( "interrupted while loading " + datasetFile.getAbsolutePath(), e );
+        } catch ( ExecutionException e ) {
+            throw new BenchmarkingException( "writer failed to load " + datasetFile.getAbsolutePath(), e.getCause() );
+        } finally {
+            pool.shutdownNow();
+        }
+        post();
+
+        long retries = 0;
+        final List<SummaryStatistics> commitLatencies = new ArrayList<>( threads );
+        for ( WriterTask task : tasks ) {
+            retries += task.retries;
+            commitLatencies.add( task.commitLatencies );
+        }
+        logger.info( "Loaded {} edges with {} writer threads, {} edges per transaction and {} retried batches", edgeCount, threads, batchSize, retries );
+        return new ParallelInsertionResult( edgeCount, AggregateSummaryStatistics.aggregate( commitLatencies ) );
+    }
+
+
+    /**
+     * Puts the batch on the queue, failing fast if a writer is gone and the
+     * queue would never drain
+     */
+    private static void enqueue( BlockingQueue<EdgeArrays> batches, EdgeArrays batch, List<Future<?>> writers ) throws InterruptedException, ExecutionException {
+        while ( !batches.offer( batch, 100, TimeUnit.MILLISECONDS ) ) {
+            for ( Future<?> writer : writers ) {
+                if ( writer.isDone() ) {
+                    writer.get();
+                    throw new IllegalStateException( "writer finished before the end of the dataset" );
+                }
+            }
+        }
+    }
+
+
+    private final class WriterTask implements Callable<Void> {
+
+        private final BlockingQueue<EdgeArrays> batches;
+        // read by the loading thread once the task is done
+        private final SummaryStatistics commitLatencies = new SummaryStatistics();
+        private long retries = 0;
+        private final String insertionTypeCtxt = type.getShortname() + INSERTION_CONTEXT + "parallel." + (variant == null ? "" : variant + ".");
+        private final Timer getOrCreateTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "getOrCreate" );
+        private final Timer relateNodesTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "relateNodes" );
+        private final Timer commitTimes = GraphDatabaseBenchmark.metrics.timer( insertionTypeCtxt + "commit" );
+
+
+        private WriterTask( BlockingQueue<EdgeArrays> batches ) {
+            this.batches = batches;
+        }
+
+
+        @Override
+        public Void call() throws InterruptedException {
+            try ( InsertionWriter<T> writer = openWriter() ) {
+                EdgeArrays batch;
+                while ( (batch = batches.take()) != END_OF_DATA ) {
+                    retries += insert( writer, batch );
+                }
+            }
+            return null;
+        }
+
+
+        private int insert( InsertionWriter<T> writer, EdgeArrays batch ) {
+            for ( int attempt = 0; ; attempt++ ) {
+                try {
+                    for ( int i = 0; i < batch.size(); i++ ) {
+                        final T srcNode, dstNode;
+                        Timer.Context ctxt = getOrCreateTimes.time();
+                        try {
+                            srcNode = writer.getOrCreate( batch.getSource( i ) );
+                        } finally {
+                            ctxt.stop();
+                        }
+
+                        ctxt = getOrCreateTimes.time();
+                        try {
+                            dstNode = writer.getOrCreate( batch.getDestination( i ) );
+                        } finally {
+                            ctxt.stop();
+                        }
+
+                        ctxt = relateNodesTimes.time();
+                        try {
+                            writer.relateNodes( srcNode, dstNode, PropertyPayload.edgeSeed( batch.getSource( i ), batch.getDestination( i ) ) );
+                        } finally {
+                            ctxt.stop();
+                        }
+                    }
+
+                    final Timer.Context ctxt = commitTimes.time();
+                    try {
+                        writer.commit();
+                    } finally {
+                        commitLatencies.addValue( ctxt.stop() / 1e6 );
+                    }
+                    return attempt;
+                } catch ( RuntimeException e ) {
+                    writer.rollback();
+                    if ( attempt >= config.getInsertionRetries() || !isConflict( e ) ) {
+                        throw e;
+                    }
+                    logger.debug( "Retrying batch after conflict: {}", e.getMessage() );
+                    // randomized exponential backoff, so colliding writers drift apart
+                    final long backoff = Math.min( MAX_BACKOFF_NANOS, TimeUnit.MILLISECONDS.toNanos( 1L << Math.min( attempt, 20 ) ) );
+                    LockSupport.parkNanos( (long) (Math.random() * backoff) );
+                }
+            }
         }
     }
 }
@@ -0,0 +1,105 @@
+package eu.socialsensor.insert;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+
+/**
+ * Latencies of every operation of the single insertion in nanoseconds. Every
+ * scenario hands over one histogram per operation, tagged with the name of
+ * the operation, and they are merged in memory until the benchmark writes
+ * them out. Shared by name between the insertions of a database and the
+ * benchmark, like the metrics registry.
+ */
+public final class InsertionLatencies {
+
+    public static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+    private static final Map<String, InsertionLatencies> LATENCIES = new HashMap<>();
+
+    // merged over all scenarios by operation
+    private final Map<String, Histogram> merged = new LinkedHashMap<>();
+    // one per scenario and operation, in the order they were added
+    private final List<Histogram> intervals = new ArrayList<>();
+
+
+    private InsertionLatencies() {
+    }
+
+
+    /**
+     * @return the latencies with the name, created on first use
+     */
+    public static synchronized InsertionLatencies get( String name ) {
+        return LATENCIES.computeIfAbsent( name, n -> new InsertionLatencies() );
+    }
+
+
+    /**
+     * @return the latencies with the name, or null if none were recorded
+     */
+    public static synchronized InsertionLatencies remove( String name ) {
+        return LATENCIES.remove( name );
+    }
+
+
+    /**
+     * @return a histogram for the latencies of one operation in a scenario
+     */
+    static Histogram newHistogram( String operation ) {
+        final Histogram histogram = new Histogram( SIGNIFICANT_DIGITS );
+        histogram.setTag( operation );
+        histogram.setStartTimeStamp( System.currentTimeMillis() );
+        return histogram;
+    }
+
+
+    /**
+     * Adds the histogram of one scenario, tagged with its operation
+     */
+    synchronized void add( Histogram histogram ) {
+        histogram.setEndTimeStamp( System.currentTimeMillis() );
+        intervals.add( histogram );
+        merged.computeIfAbsent( histogram.getTag(), tag -> new Histogram( SIGNIFICANT_DIGITS ) ).add( histogram );
+    }
+
+
+    /**
+     * Writes the percentile distribution of every operation over all scenarios
+     * to &lt;prefix&gt;.&lt;operation&gt;.hgrm and the histogram of every scenario
+     * and operation to the compressed histogram log &lt;prefix&gt;.hlog, with
+     * latencies in milliseconds
+     */
+    public synchronized void write( File directory, String prefix ) throws IOException {
+        for ( Map.Entry<String, Histogram> entry : merged.entrySet() ) {
+            try ( PrintStream out = new PrintStream( new FileOutputStream( new File( directory, prefix + "." + entry.getKey() + ".hgrm" ) ) ) ) {
+                entry.getValue().outputPercentileDistribution( out, NANOS_PER_MILLISECOND );
+            }
+        }
+
+        if ( intervals.isEmpty() ) {
+            return;
+        }
+        final long baseTime = intervals.get( 0 ).getStartTimeStamp();
+        try ( PrintStream out = new PrintStream( new FileOutputStream( new File( directory, prefix + ".hlog" ) ) ) ) {
+            final HistogramLogWriter log = new HistogramLogWriter( out );
+            log.outputLogFormatVersion();
+            log.outputStartTime( baseTime );
+            log.setBaseTime( baseTime );
+            log.outputLegend();
+            for ( Histogram interval : intervals ) {
+                log.outputIntervalHistogram( interval );
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package eu.socialsensor.insert;
+
+
+/**
+ * One writer of the parallel insertion mode. Every writer thread opens its own
+ * writer, which holds the transaction or session of that thread, and uses it
+ * for batches of edges that are committed or rolled back as a whole.
+ *
+ * @param <T> the Type of vertexes (graph database vendor specific)
+ * @see InsertionBase#createGraphInParallel(java.io.File, int, int)
+ */
+public interface InsertionWriter<T> extends AutoCloseable {
+
+    /**
+     * Gets or creates a vertex in the current transaction, which is started
+     * if there is none
+     */
+    T getOrCreate( int value );
+
+    /**
+     * Relates two vertexes in the current transaction, which is started if
+     * there is none
+     *
+     * @param edgeSeed seeds the payload of the edge
+     */
+    void relateNodes( T src, T dest, long edgeSeed );
+
+    /**
+     * Commits the current transaction, if any
+     */
+    void commit();
+
+    /**
+     * Rolls back the current transaction, if any. Vertexes obtained in the
+     * transaction must not be used afterwards.
+     */
+    void rollback();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,167 @@
+package eu.socialsensor.insert;
+
+
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+
+/**
+ * Checkpoint of a massive load, kept next to the store of the database in
+ * &lt;store&gt;.checkpoint. It holds a copy of the store at a consistent point
+ * and a state file with the number of edges loaded up to that point, the load
+ * time spent on them and whatever state the insertion needs to resume, such
+ * as its map from dataset ids to node ids. A checkpoint is written to
+ * &lt;store&gt;.checkpoint.tmp first, and the state file is written last, so
+ * only a directory with a state file is complete.
+ */
+public final class MassiveLoadCheckpoint {
+
+    private static final String STATE_FILE_NAME = "checkpoint.state";
+    private static final int VERSION = 1;
+
+    private final File storeDirectory;
+    private final File checkpointDirectory;
+    private final File temporaryDirectory;
+
+
+    public MassiveLoadCheckpoint( File storeDirectory ) {
+        this.storeDirectory = storeDirectory.getAbsoluteFile();
+        this.checkpointDirectory = new File( this.storeDirectory.getParentFile(), this.storeDirectory.getName() + ".checkpoint" );
+        this.temporaryDirectory = new File( this.storeDirectory.getParentFile(), this.storeDirectory.getName() + ".checkpoint.tmp" );
+    }
+
+
+    /**
+     * @return the latest complete checkpoint, or null if there is none
+     */
+    private File latest() {
+        // a complete temporary checkpoint is newer, it was not moved in place yet
+        if ( new File( temporaryDirectory, STATE_FILE_NAME ).isFile() ) {
+            return temporaryDirectory;
+        }
+        if ( new File( checkpointDirectory, STATE_FILE_NAME ).isFile() ) {
+            return checkpointDirectory;
+        }
+        return null;
+    }
+
+
+    /**
+     * @return true if a load of the store can resume from a checkpoint
+     */
+    public boolean exists() {
+        return latest() != null;
+    }
+
+
+    /**
+     * Replaces the store, which may be inconsistent after a failed load, with
+     * the copy of the latest checkpoint
+     */
+    public void restoreStore() {
+        final File latest = latest();
+        if ( latest == null ) {
+            throw new IllegalStateException( "no checkpoint of " + storeDirectory );
+        }
+        Utils.deleteRecursively( storeDirectory );
+        copy( latest, storeDirectory );
+        if ( !new File( storeDirectory, STATE_FILE_NAME ).delete() ) {
+            throw new BenchmarkingException( "unable to remove the checkpoint state from " + storeDirectory );
+        }
+    }
+
+
+    /**
+     * Copies the store, which must be consistent on disk, and writes the state
+     * next to the copy
+     */
+    void write( long edges, long loadMillis, StateWriter state ) throws IOException {
+        Utils.deleteRecursively( temporaryDirectory );
+        copy( storeDirectory, temporaryDirectory );
+        final File stateFile = new File( temporaryDirectory, STATE_FILE_NAME );
+        final File partialStateFile = new File( temporaryDirectory, STATE_FILE_NAME + ".partial" );
+        try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( partialStateFile ) ) ) ) {
+            out.writeInt( VERSION );
+            out.writeLong( edges );
+            out.writeLong( loadMillis );
+            state.write( out );
+        }
+        if ( !partialStateFile.renameTo( stateFile ) ) {
+            throw new IOException( "unable to complete " + stateFile );
+        }
+        Utils.deleteRecursively( checkpointDirectory );
+        if ( !temporaryDirectory.renameTo( checkpointDirectory ) ) {
+            throw new IOException( "unable to move " + temporaryDirectory + " to " + checkpointDirectory );
+        }
+    }
+
+
+    /**
+     * Reads the state of the latest checkpoint
+     *
+     * @return the number of edges loaded at the checkpoint and the load time
+     * spent on them in milliseconds
+     */
+    long[] read( StateReader state ) throws IOException {
+        final File latest = latest();
+        if ( latest == null ) {
+            throw new IllegalStateException( "no checkpoint of " + storeDirectory );
+        }
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( new File( latest, STATE_FILE_NAME ) ) ) ) ) {
+            final int version = in.readInt();
+            if ( version != VERSION ) {
+                throw new IOException( "unsupported checkpoint version " + version );
+            }
+            final long edges = in.readLong();
+            final long loadMillis = in.readLong();
+            state.read( in );
+            return new long[] { edges, loadMillis };
+        }
+    }
+
+
+    /**
+     * Removes the checkpoints once the load is complete
+     */
+    public void delete() {
+        Utils.deleteRecursively( temporaryDirectory );
+        Utils.deleteRecursively( checkpointDirectory );
+    }
+
+
+    private static void copy( File from, File to ) {
+        if ( from.isDirectory() ) {
+            if ( !to.mkdirs() ) {
+                throw new BenchmarkingException( "unable to create " + to );
+            }
+            for ( File child : from.listFiles() ) {
+                copy( child, new File( to, child.getName() ) );
+            }
+            return;
+        }
+        try {
+            Files.copy( from.toPath(), to.toPath() );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to copy " + from + " to " + to, e );
+        }
+    }
+
+
+    interface StateWriter {
+        void write( DataOutputStream out ) throws IOException;
+    }
+
+
+    interface StateReader {
+        void read( DataInputStream in ) throws IOException;
+    }
+}
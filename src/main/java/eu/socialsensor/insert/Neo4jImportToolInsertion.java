@@ -0,0 +1,135 @@
+package eu.socialsensor.insert;
+
+
+import eu.socialsensor.dataset.Dataset;
+import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.dataset.EdgeCursor;
+import eu.socialsensor.graphdatabases.Neo4jGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.tooling.ImportTool;
+
+
+/**
+ * Massive insertion with the multi-threaded offline importer of Neo4j. The
+ * dataset is streamed into a node and a relationship CSV file in a temporary
+ * directory next to the store, and the importer reads them with all
+ * processors. The store directory must not contain a database yet; indexes
+ * are built when the store is opened afterwards.
+ */
+public final class Neo4jImportToolInsertion implements Insertion {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final BenchmarkConfiguration config;
+    private final PropertyPayload payload;
+    private final File storeDirectory;
+
+
+    public Neo4jImportToolInsertion( BenchmarkConfiguration config, File storeDirectory ) {
+        this.config = config;
+        this.payload = new PropertyPayload( config );
+        this.storeDirectory = storeDirectory;
+    }
+
+
+    @Override
+    public void createGraph( File datasetFile, int scenarioNumber ) {
+        logger.info( "Loading data with the import tool in {}", storeDirectory.getAbsolutePath() );
+        final Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() );
+        File importDirectory = null;
+        try {
+            importDirectory = Files.createTempDirectory( storeDirectory.getAbsoluteFile().getParentFile().toPath(), "neo4j-import" ).toFile();
+            final File nodes = new File( importDirectory, "nodes.csv" );
+            final File relationships = new File( importDirectory, "relationships.csv" );
+            writeNodes( dataset, nodes, payload );
+            writeRelationships( dataset, relationships, payload );
+
+            ImportTool.main( new String[] {
+                    "--into", storeDirectory.getAbsolutePath(),
+                    "--nodes:" + Neo4jGraphDatabase.NODE_LABEL.name(), nodes.getAbsolutePath(),
+                    "--relationships:" + Neo4jGraphDatabase.RelTypes.SIMILAR.name(), relationships.getAbsolutePath(),
+                    "--processors", String.valueOf( Runtime.getRuntime().availableProcessors() ) } );
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to import " + datasetFile.getAbsolutePath() + " into " + storeDirectory.getAbsolutePath(), e );
+        } finally {
+            if ( importDirectory != null ) {
+                Utils.deleteRecursively( importDirectory );
+            }
+        }
+    }
+
+
+    /**
+     * Writes the distinct node ids. The ID column is stored as the string
+     * property nodeId, as in the other Neo4j loaders, followed by the payload.
+     */
+    private static void writeNodes( Dataset dataset, File nodes, PropertyPayload payload ) throws IOException {
+        try ( Writer out = new BufferedWriter( new FileWriter( nodes ), WRITE_BUFFER_SIZE ) ) {
+            out.write( Neo4jGraphDatabase.NODE_ID + ":ID" );
+            for ( int i = 0; i < payload.getVertexPropertyCount(); i++ ) {
+                out.write( ',' );
+                out.write( header( payload.getVertexKey( i ), payload.getVertexType( i ) ) );
+            }
+            out.write( '\n' );
+            for ( int node : dataset.getNodes() ) {
+                out.write( Integer.toString( node ) );
+                for ( int i = 0; i < payload.getVertexPropertyCount(); i++ ) {
+                    out.write( ',' );
+                    out.write( payload.getVertexValue( node, i ).toString() );
+                }
+                out.write( '\n' );
+            }
+        }
+    }
+
+
+    private static void writeRelationships( Dataset dataset, File relationships, PropertyPayload payload ) throws IOException {
+        try ( Writer out = new BufferedWriter( new FileWriter( relationships ), WRITE_BUFFER_SIZE );
+              EdgeCursor edges = dataset.cursor() ) {
+            out.write( ":START_ID,:END_ID" );
+            for ( int i = 0; i < payload.getEdgePropertyCount(); i++ ) {
+                out.write( ',' );
+                out.write( header( payload.getEdgeKey( i ), payload.getEdgeType( i ) ) );
+            }
+            out.write( '\n' );
+            while ( edges.next() ) {
+                out.write( Integer.toString( edges.getSource() ) );
+                out.write( ',' );
+                out.write( Integer.toString( edges.getDestination() ) );
+                final long edgeSeed = PropertyPayload.edgeSeed( edges.getSource(), edges.getDestination() );
+                for ( int i = 0; i < payload.getEdgePropertyCount(); i++ ) {
+                    out.write( ',' );
+                    out.write( payload.getEdgeValue( edgeSeed, i ).toString() );
+                }
+                out.write( '\n' );
+            }
+        }
+    }
+
+
+    private static String header( String key, PropertyType type ) {
+        switch ( type ) {
+            case INTEGER:
+                return key + ":int";
+            case LONG:
+                return key + ":long";
+            case DOUBLE:
+                return key + ":double";
+            case STRING:
+                return key + ":string";
+            default:
+                throw new IllegalArgumentException( "unsupported property type " + type );
+        }
+    }
+}
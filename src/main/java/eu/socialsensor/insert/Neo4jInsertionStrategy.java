@@ -0,0 +1,32 @@
+package eu.socialsensor.insert;
+
+
+import java.util.Locale;
+
+
+/**
+ * How {@link Neo4jSingleInsertion} gets or creates a vertex. Comparing them
+ * separates the cost of the Cypher runtime from the cost of the storage.
+ */
+public enum Neo4jInsertionStrategy {
+    /**
+     * A Cypher MERGE with a fresh parameter map per vertex
+     */
+    CYPHER_MERGE,
+    /**
+     * The same Cypher MERGE, reusing one parameter map per thread
+     */
+    CYPHER_PREPARED,
+    /**
+     * findNode and createNode of the Core API, backed by the schema index
+     */
+    CORE_API;
+
+
+    /**
+     * @return the name used in metrics and result files
+     */
+    public String getShortname() {
+        return name().toLowerCase( Locale.ROOT );
+    }
+}
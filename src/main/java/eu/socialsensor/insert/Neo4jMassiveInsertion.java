@@ -1,10 +1,18 @@
 package eu.socialsensor.insert;
 
 
+import com.carrotsearch.hppc.IntLongOpenHashMap;
+import com.google.common.primitives.Ints;
+import eu.socialsensor.dataset.DatasetStatistics;
 import eu.socialsensor.graphdatabases.Neo4jGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
-import java.util.HashMap;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.function.Supplier;
 import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 
@@ -17,30 +25,144 @@ import org.neo4j.unsafe.batchinsert.BatchInserter;
  */
 public final class Neo4jMassiveInsertion extends InsertionBase<Long> {
 
-    private final BatchInserter inserter;
-    Map<Long, Long> cache = new HashMap<>();
+    // a dense id space may waste at most this many slots per node
+    private static final int MAX_DENSE_SLOTS_PER_NODE = 2;
 
+    private BatchInserter inserter;
+    // shuts the inserter down, which is the only way to flush its store, and opens a new one
+    private final Supplier<BatchInserter> restartInserter;
+    // node ids by dataset id, either in a dense array offset by the smallest
+    // id or in a primitive hash map that holds node id + 1, so 0 means absent
+    private long[] denseCache = null;
+    private int denseOffset = 0;
+    private IntLongOpenHashMap cache = null;
 
-    public Neo4jMassiveInsertion( BatchInserter inserter ) {
-        super( GraphDatabaseType.NEO4J, null /* resultsPath */ );
+
+    public Neo4jMassiveInsertion( BenchmarkConfiguration config, BatchInserter inserter ) {
+        this( config, inserter, null );
+    }
+
+
+    /**
+     * @param restartInserter shuts the current inserter down and returns a new
+     * one on the same store, for checkpoints
+     */
+    public Neo4jMassiveInsertion( BenchmarkConfiguration config, BatchInserter inserter, Supplier<BatchInserter> restartInserter ) {
+        super( config, GraphDatabaseType.NEO4J, null /* resultsPath */ );
         this.inserter = inserter;
+        this.restartInserter = restartInserter;
+    }
+
+
+    @Override
+    protected boolean needsStatistics() {
+        return true;
+    }
+
+
+    @Override
+    protected void prepare( DatasetStatistics statistics ) {
+        final long span = (long) statistics.getMaxNodeId() - statistics.getMinNodeId() + 1;
+        if ( statistics.getNodeCount() > 0 && span <= MAX_DENSE_SLOTS_PER_NODE * statistics.getNodeCount() && span <= Integer.MAX_VALUE - 8 ) {
+            denseCache = new long[(int) span];
+            denseOffset = statistics.getMinNodeId();
+            Arrays.fill( denseCache, -1L );
+        } else {
+            cache = new IntLongOpenHashMap( Ints.saturatedCast( (long) Math.ceil( statistics.getNodeCount() / IntLongOpenHashMap.DEFAULT_LOAD_FACTOR ) ) );
+        }
+    }
+
+
+    @Override
+    protected void flush() {
+        if ( restartInserter == null ) {
+            super.flush();
+        } else {
+            inserter = restartInserter.get();
+        }
+    }
+
+
+    /**
+     * Writes the map from dataset ids to node ids
+     */
+    @Override
+    protected void saveState( DataOutputStream out ) throws IOException {
+        out.writeBoolean( denseCache != null );
+        if ( denseCache != null ) {
+            out.writeInt( denseOffset );
+            out.writeInt( denseCache.length );
+            for ( long id : denseCache ) {
+                out.writeLong( id );
+            }
+            return;
+        }
+        out.writeInt( cache.size() );
+        for ( int slot = 0; slot < cache.allocated.length; slot++ ) {
+            if ( cache.allocated[slot] ) {
+                out.writeInt( cache.keys[slot] );
+                out.writeLong( cache.values[slot] );
+            }
+        }
+    }
+
+
+    @Override
+    protected void restoreState( DataInputStream in ) throws IOException {
+        final boolean dense = in.readBoolean();
+        if ( dense != (denseCache != null) ) {
+            throw new IOException( "the checkpoint was written for another dataset" );
+        }
+        if ( dense ) {
+            if ( in.readInt() != denseOffset || in.readInt() != denseCache.length ) {
+                throw new IOException( "the checkpoint was written for another dataset" );
+            }
+            for ( int slot = 0; slot < denseCache.length; slot++ ) {
+                denseCache[slot] = in.readLong();
+            }
+            return;
+        }
+        for ( int remaining = in.readInt(); remaining > 0; remaining-- ) {
+            cache.put( in.readInt(), in.readLong() );
+        }
     }
 
 
     @Override
-    protected Long getOrCreate( String value ) {
-        Long id = cache.get( Long.valueOf( value ) );
-        if ( id == null ) {
-            Map<String, Object> properties = MapUtil.map( "nodeId", value );
-            id = inserter.createNode( properties, Neo4jGraphDatabase.NODE_LABEL );
-            cache.put( Long.valueOf( value ), id );
+    protected Long getOrCreate( int value ) {
+        if ( denseCache != null ) {
+            final int slot = value - denseOffset;
+            if ( denseCache[slot] < 0 ) {
+                denseCache[slot] = createNode( value );
+            }
+            return denseCache[slot];
+        }
+
+        long id = cache.get( value ) - 1;
+        if ( id < 0 ) {
+            id = createNode( value );
+            cache.put( value, id + 1 );
         }
         return id;
     }
 
 
+    private long createNode( int value ) {
+        Map<String, Object> properties = MapUtil.map( "nodeId", String.valueOf( value ) );
+        payload.putVertexProperties( properties, value );
+        return inserter.createNode( properties, Neo4jGraphDatabase.NODE_LABEL );
+    }
+
+
+    @Override
+    protected void relateNodes( Long src, Long dest, long edgeSeed ) {
+        inserter.createRelationship( src, dest, Neo4jGraphDatabase.RelTypes.SIMILAR, payload.getEdgeProperties( edgeSeed ) );
+    }
+
+
     @Override
-    protected void relateNodes( Long src, Long dest ) {
-        inserter.createRelationship( src, dest, Neo4jGraphDatabase.RelTypes.SIMILAR, null );
+    protected InsertionWriter<Long> openWriter() {
+        // the batch inserter is not thread safe, parallel loads use Neo4jSingleInsertion
+        throw new UnsupportedOperationException( type.name() + " massive insertion does not support parallel insertion" );
     }
 }
@@ -0,0 +1,16 @@
+package eu.socialsensor.insert;
+
+
+/**
+ * How the massive insertion builds a Neo4j store
+ */
+public enum Neo4jMassiveLoader {
+    /**
+     * The single-threaded BatchInserter, one call per vertex and edge
+     */
+    BATCH_INSERTER,
+    /**
+     * The multi-threaded offline importer over CSV files
+     */
+    IMPORT_TOOL
+}
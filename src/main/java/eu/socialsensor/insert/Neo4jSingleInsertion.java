@@ -2,12 +2,17 @@ package eu.socialsensor.insert;
 
 
 import eu.socialsensor.graphdatabases.Neo4jGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.BenchmarkingException;
 import eu.socialsensor.main.GraphDatabaseType;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.ConstraintViolationException;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransientFailureException;
 
 import java.io.File;
 import java.util.HashMap;
@@ -23,45 +28,178 @@ import java.util.Map;
 @SuppressWarnings("deprecation")
 public class Neo4jSingleInsertion extends InsertionBase<Node> {
 
+    private static final String MERGE_QUERY = "MERGE (n:Node {nodeId: {nodeId}}) RETURN n";
+    private static final String MERGE_PAYLOAD_QUERY = "MERGE (n:Node {nodeId: {nodeId}}) ON CREATE SET n += {payload} RETURN n";
+    private static final String PAYLOAD_PARAMETER = "payload";
+
     private final GraphDatabaseService neo4jGraph;
+    private final Neo4jInsertionStrategy strategy;
+    // writers of the parallel insertion share this instance
+    private final ThreadLocal<Map<String, Object>> preparedParameters = ThreadLocal.withInitial( HashMap::new );
+    // refilled for every node, the payload keys are the same every time
+    private final ThreadLocal<Map<String, Object>> preparedPayload = ThreadLocal.withInitial( HashMap::new );
 
 
-    public Neo4jSingleInsertion( GraphDatabaseService neo4jGraph, File resultsPath ) {
-        super( GraphDatabaseType.NEO4J, resultsPath );
+    public Neo4jSingleInsertion( BenchmarkConfiguration config, GraphDatabaseService neo4jGraph, File resultsPath, Neo4jInsertionStrategy strategy ) {
+        super( config, GraphDatabaseType.NEO4J, resultsPath, strategy.getShortname() );
         this.neo4jGraph = neo4jGraph;
+        this.strategy = strategy;
     }
 
 
-    public Node getOrCreate( String nodeId ) {
+    public Node getOrCreate( int nodeId ) {
         Node result;
 
-        try ( final Transaction tx = neo4jGraph.beginTx() ) {
-            try {
-                String queryString = "MERGE (n:Node {nodeId: {nodeId}}) RETURN n";
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put( "nodeId", nodeId );
-                ResourceIterator<Node> resultIterator = neo4jGraph.execute( queryString, parameters ).columnAs( "n" );
-                result = resultIterator.next();
-                tx.success();
-            } catch ( Exception e ) {
-                tx.failure();
-                throw new BenchmarkingException( "unable to get or create node " + nodeId, e );
+        final Transaction tx = neo4jGraph.beginTx();
+        try {
+            final String value = String.valueOf( nodeId );
+            switch ( strategy ) {
+                case CYPHER_MERGE:
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put( Neo4jGraphDatabase.NODE_ID, value );
+                    result = merge( parameters, null, nodeId );
+                    break;
+                case CYPHER_PREPARED:
+                    final Map<String, Object> prepared = preparedParameters.get();
+                    prepared.put( Neo4jGraphDatabase.NODE_ID, value );
+                    result = merge( prepared, preparedPayload.get(), nodeId );
+                    break;
+                case CORE_API:
+                    result = neo4jGraph.findNode( Neo4jGraphDatabase.NODE_LABEL, Neo4jGraphDatabase.NODE_ID, value );
+                    if ( result == null ) {
+                        result = neo4jGraph.createNode( Neo4jGraphDatabase.NODE_LABEL );
+                        result.setProperty( Neo4jGraphDatabase.NODE_ID, value );
+                        for ( int i = 0; i < payload.getVertexPropertyCount(); i++ ) {
+                            result.setProperty( payload.getVertexKey( i ), payload.getVertexValue( nodeId, i ) );
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException( "unsupported strategy " + strategy );
             }
+            tx.success();
+        } catch ( Exception e ) {
+            tx.failure();
+            tx.close();
+            throw new BenchmarkingException( "unable to get or create node " + nodeId, e );
         }
+        // closing the transaction commits it
+        commit( tx::close );
 
         return result;
     }
 
 
+    /**
+     * @param payloadParameters map to fill with the vertex payload, null for
+     * a new one
+     */
+    private Node merge( Map<String, Object> parameters, Map<String, Object> payloadParameters, int nodeId ) {
+        if ( payload.getVertexPropertyCount() == 0 ) {
+            ResourceIterator<Node> resultIterator = neo4jGraph.execute( MERGE_QUERY, parameters ).columnAs( "n" );
+            return resultIterator.next();
+        }
+        parameters.put( PAYLOAD_PARAMETER, payload.putVertexProperties( payloadParameters == null ? new HashMap<>() : payloadParameters, nodeId ) );
+        ResourceIterator<Node> resultIterator = neo4jGraph.execute( MERGE_PAYLOAD_QUERY, parameters ).columnAs( "n" );
+        return resultIterator.next();
+    }
+
+
+    @Override
+    public void relateNodes( Node src, Node dest, long edgeSeed ) {
+        final Transaction tx = neo4jGraph.beginTx();
+        try {
+            final Relationship relationship = src.createRelationshipTo( dest, Neo4jGraphDatabase.RelTypes.SIMILAR );
+            for ( int i = 0; i < payload.getEdgePropertyCount(); i++ ) {
+                relationship.setProperty( payload.getEdgeKey( i ), payload.getEdgeValue( edgeSeed, i ) );
+            }
+            tx.success();
+        } catch ( Exception e ) {
+            tx.failure();
+            tx.close();
+            throw new BenchmarkingException( "unable to relate nodes", e );
+        }
+        // closing the transaction commits it
+        commit( tx::close );
+    }
+
+
+    /**
+     * Transactions are bound to the thread in Neo4j, and the transactions of
+     * getOrCreate and relateNodes nest in the one of the writer.
+     */
+    @Override
+    protected InsertionWriter<Node> openWriter() {
+        return new Neo4jWriter();
+    }
+
+
     @Override
-    public void relateNodes( Node src, Node dest ) {
-        try ( final Transaction tx = neo4jGraph.beginTx() ) {
-            try {
-                src.createRelationshipTo( dest, Neo4jGraphDatabase.RelTypes.SIMILAR );
+    protected boolean isConflict( RuntimeException e ) {
+        for ( Throwable t = e; t != null; t = t.getCause() ) {
+            if ( t instanceof QueryExecutionException ) {
+                final String status = ((QueryExecutionException) t).getStatusCode();
+                if ( status.contains( "TransientError" ) || status.contains( "ConstraintValidationFailed" ) ) {
+                    return true;
+                }
+            }
+        }
+        return causedBy( e, TransientFailureException.class, ConstraintViolationException.class );
+    }
+
+
+    private final class Neo4jWriter implements InsertionWriter<Node> {
+
+        private Transaction tx = null;
+
+
+        @Override
+        public Node getOrCreate( int value ) {
+            begin();
+            return Neo4jSingleInsertion.this.getOrCreate( value );
+        }
+
+
+        @Override
+        public void relateNodes( Node src, Node dest, long edgeSeed ) {
+            begin();
+            Neo4jSingleInsertion.this.relateNodes( src, dest, edgeSeed );
+        }
+
+
+        @Override
+        public void commit() {
+            if ( tx != null ) {
                 tx.success();
-            } catch ( Exception e ) {
+                close();
+            }
+        }
+
+
+        @Override
+        public void rollback() {
+            if ( tx != null ) {
                 tx.failure();
-                throw new BenchmarkingException( "unable to relate nodes", e );
+                close();
+            }
+        }
+
+
+        @Override
+        public void close() {
+            if ( tx != null ) {
+                try {
+                    tx.close();
+                } finally {
+                    tx = null;
+                }
+            }
+        }
+
+
+        private void begin() {
+            if ( tx == null ) {
+                tx = neo4jGraph.beginTx();
             }
         }
     }
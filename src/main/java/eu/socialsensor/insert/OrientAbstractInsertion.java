@@ -49,9 +49,7 @@ public abstract class OrientAbstractInsertion implements Insertion {
     }
 
 
-    protected Vertex getOrCreate( final String value ) {
-        final int key = Integer.parseInt( value );
-
+    protected Vertex getOrCreate( final int key ) {
         Vertex v;
         if ( index == null ) {
             index = orientGraph.getRawGraph().getMetadata().getIndexManager().getIndex( "V.nodeId" );
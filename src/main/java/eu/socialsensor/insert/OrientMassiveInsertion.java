@@ -1,10 +1,16 @@
 package eu.socialsensor.insert;
 
 
+import com.google.common.primitives.Ints;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.graph.batch.OGraphBatchInsert;
 import com.orientechnologies.orient.graph.batch.OGraphBatchInsertBasic;
 import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import eu.socialsensor.dataset.DatasetStatistics;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
+import java.util.BitSet;
+import java.util.HashMap;
 
 
 /**
@@ -15,14 +21,18 @@ import eu.socialsensor.main.GraphDatabaseType;
  */
 public class OrientMassiveInsertion extends InsertionBase<Long> implements Insertion {
 
-    private static final int ESTIMATED_ENTRIES = 1000000;
-    private static final int AVERAGE_NUMBER_OF_EDGES_PER_NODE = 40;
     private static final int NUMBER_OF_ORIENT_CLUSTERS = 16;
+    // the basic batch insert stores no properties but the id, the full one
+    // takes over when there is a payload
     private final OGraphBatchInsertBasic graph;
+    private final OGraphBatchInsert payloadGraph;
+    // vertexes created so far; the batch insert takes vertex properties only
+    // once all edges are created, so their payload is set in post
+    private final BitSet vertexesWithPayload = new BitSet();
 
 
-    public OrientMassiveInsertion( final String url ) {
-        super( GraphDatabaseType.ORIENT_DB, null /* resultsPath */ );
+    public OrientMassiveInsertion( BenchmarkConfiguration config, final String url ) {
+        super( config, GraphDatabaseType.ORIENT_DB, null /* resultsPath */ );
         OGlobalConfiguration.ENVIRONMENT_CONCURRENT.setValue( false );
         OrientGraphNoTx transactionlessGraph = new OrientGraphNoTx( url );
         for ( int i = 0; i < NUMBER_OF_ORIENT_CLUSTERS; ++i ) {
@@ -31,30 +41,82 @@ public class OrientMassiveInsertion extends InsertionBase<Long> implements Inser
         }
         transactionlessGraph.shutdown();
 
-        graph = new OGraphBatchInsertBasic( url );
-        graph.setAverageEdgeNumberPerNode( AVERAGE_NUMBER_OF_EDGES_PER_NODE );
-        graph.setEstimatedEntries( ESTIMATED_ENTRIES );
-        graph.setIdPropertyName( "nodeId" );
+        if ( payload.getVertexPropertyCount() == 0 && payload.getEdgePropertyCount() == 0 ) {
+            graph = new OGraphBatchInsertBasic( url );
+            graph.setIdPropertyName( "nodeId" );
+            payloadGraph = null;
+        } else {
+            graph = null;
+            payloadGraph = new OGraphBatchInsert( url );
+            payloadGraph.setIdPropertyName( "nodeId" );
+        }
+    }
+
+
+    @Override
+    protected boolean needsStatistics() {
+        return true;
+    }
+
+
+    @Override
+    protected void prepare( DatasetStatistics statistics ) {
+        // vertex ids are used as positions, so size for the largest one
+        final int estimatedEntries = Ints.saturatedCast( (long) statistics.getMaxNodeId() + 1 );
+        final int averageEdgeNumberPerNode = Math.max( 1, (int) Math.ceil( statistics.getAverageDegree() ) );
+        if ( payloadGraph != null ) {
+            payloadGraph.setEstimatedEntries( estimatedEntries );
+            payloadGraph.setAverageEdgeNumberPerNode( averageEdgeNumberPerNode );
+            payloadGraph.begin();
+            return;
+        }
+        graph.setEstimatedEntries( estimatedEntries );
+        graph.setAverageEdgeNumberPerNode( averageEdgeNumberPerNode );
         graph.begin();
     }
 
 
     @Override
     protected void post() {
+        if ( payloadGraph != null ) {
+            for ( int value = vertexesWithPayload.nextSetBit( 0 ); value >= 0; value = vertexesWithPayload.nextSetBit( value + 1 ) ) {
+                payloadGraph.setVertexProperties( (long) value, payload.putVertexProperties( new HashMap<>(), value ) );
+            }
+            payloadGraph.end();
+            return;
+        }
         graph.end();
     }
 
 
     @Override
-    protected Long getOrCreate( String value ) {
-        final long v = Long.parseLong( value );
+    protected Long getOrCreate( int value ) {
+        final long v = value;
+        if ( payloadGraph != null ) {
+            payloadGraph.createVertex( v );
+            if ( payload.getVertexPropertyCount() > 0 ) {
+                vertexesWithPayload.set( value );
+            }
+            return v;
+        }
         graph.createVertex( v );
         return v;
     }
 
 
     @Override
-    protected void relateNodes( Long src, Long dest ) {
+    protected void relateNodes( Long src, Long dest, long edgeSeed ) {
+        if ( payloadGraph != null ) {
+            payloadGraph.createEdge( src, dest, payload.getEdgeProperties( edgeSeed ) );
+            return;
+        }
         graph.createEdge( src, dest );
     }
+
+
+    @Override
+    protected InsertionWriter<Long> openWriter() {
+        // the batch insert is not thread safe, parallel loads use OrientSingleInsertion
+        throw new UnsupportedOperationException( type.name() + " massive insertion does not support parallel insertion" );
+    }
 }
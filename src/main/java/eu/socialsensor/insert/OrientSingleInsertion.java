@@ -2,12 +2,17 @@ package eu.socialsensor.insert;
 
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.TransactionalGraph;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
 import java.io.File;
+import java.util.Iterator;
 
 
 /**
@@ -22,45 +27,66 @@ public final class OrientSingleInsertion extends InsertionBase<Vertex> {
     protected final OIndex<?> index;
 
 
-    public OrientSingleInsertion( OrientGraph orientGraph, File resultsPath ) {
-        super( GraphDatabaseType.ORIENT_DB, resultsPath );
+    public OrientSingleInsertion( BenchmarkConfiguration config, OrientGraph orientGraph, File resultsPath ) {
+        super( config, GraphDatabaseType.ORIENT_DB, resultsPath );
         this.orientGraph = orientGraph;
         this.index = this.orientGraph.getRawGraph().getMetadata().getIndexManager().getIndex( "V.nodeId" );
     }
 
 
     @Override
-    protected void relateNodes( Vertex src, Vertex dest ) {
-        orientGraph.addEdge( null, src, dest, "similar" );
+    protected void relateNodes( Vertex src, Vertex dest, long edgeSeed ) {
+        setEdgeProperties( orientGraph.addEdge( null, src, dest, "similar" ), edgeSeed );
 
-        // TODO why commit twice? is this a nested transaction?
         if ( orientGraph instanceof TransactionalGraph ) {
-            orientGraph.commit();
-            orientGraph.commit();
+            commit( orientGraph::commit );
         }
     }
 
 
     @Override
-    protected Vertex getOrCreate( final String value ) {
-        final int key = Integer.parseInt( value );
-
+    protected Vertex getOrCreate( final int key ) {
         Vertex v;
         final OIdentifiable rec = (OIdentifiable) index.get( key );
         if ( rec != null ) {
             return orientGraph.getVertex( rec );
         }
 
-        v = orientGraph.addVertex( key, "nodeId", key );
+        v = orientGraph.addVertex( key, vertexProperties( key ) );
 
         if ( orientGraph instanceof TransactionalGraph ) {
-            orientGraph.commit();
+            commit( orientGraph::commit );
         }
 
         return v;
     }
 
 
+    /**
+     * @return the node id and the payload as alternating keys and values
+     */
+    private Object[] vertexProperties( int key ) {
+        final Object[] properties = new Object[2 * (1 + payload.getVertexPropertyCount())];
+        properties[0] = "nodeId";
+        properties[1] = key;
+        for ( int i = 0; i < payload.getVertexPropertyCount(); i++ ) {
+            properties[2 * i + 2] = payload.getVertexKey( i );
+            properties[2 * i + 3] = payload.getVertexValue( key, i );
+        }
+        return properties;
+    }
+
+
+    /**
+     * A lightweight edge becomes a regular one once it has properties
+     */
+    private void setEdgeProperties( Edge edge, long edgeSeed ) {
+        for ( int i = 0; i < payload.getEdgePropertyCount(); i++ ) {
+            edge.setProperty( payload.getEdgeKey( i ), payload.getEdgeValue( edgeSeed, i ) );
+        }
+    }
+
+
     @Override
     protected void post() {
         super.post();
@@ -68,4 +94,67 @@ public final class OrientSingleInsertion extends InsertionBase<Vertex> {
             orientGraph.commit();
         }
     }
+
+
+    /**
+     * OrientGraph instances must not be shared between threads, so every
+     * writer opens its own graph on the same database.
+     */
+    @Override
+    protected InsertionWriter<Vertex> openWriter() {
+        return new OrientWriter();
+    }
+
+
+    @Override
+    protected boolean isConflict( RuntimeException e ) {
+        return causedBy( e, OConcurrentModificationException.class, ORecordDuplicatedException.class );
+    }
+
+
+    private final class OrientWriter implements InsertionWriter<Vertex> {
+
+        private final OrientGraph graph;
+
+
+        private OrientWriter() {
+            graph = new OrientGraph( orientGraph.getRawGraph().getURL() );
+            graph.setUseLightweightEdges( orientGraph.isUseLightweightEdges() );
+        }
+
+
+        @Override
+        public Vertex getOrCreate( int value ) {
+            // the graph query sees the vertexes created earlier in the transaction
+            final Iterator<Vertex> vertices = graph.getVertices( "nodeId", value ).iterator();
+            if ( vertices.hasNext() ) {
+                return vertices.next();
+            }
+            return graph.addVertex( value, vertexProperties( value ) );
+        }
+
+
+        @Override
+        public void relateNodes( Vertex src, Vertex dest, long edgeSeed ) {
+            setEdgeProperties( graph.addEdge( null, src, dest, "similar" ), edgeSeed );
+        }
+
+
+        @Override
+        public void commit() {
+            graph.commit();
+        }
+
+
+        @Override
+        public void rollback() {
+            graph.rollback();
+        }
+
+
+        @Override
+        public void close() {
+            graph.shutdown();
+        }
+    }
 }
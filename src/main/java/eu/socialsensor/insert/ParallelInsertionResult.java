@@ -0,0 +1,36 @@
+package eu.socialsensor.insert;
+
+
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+
+
+/**
+ * What a transactional load with a pool of writers reports back: the number
+ * of edges it inserted and the commit latencies of all writers.
+ *
+ * @see InsertionBase#createGraphInParallel(java.io.File, int, int)
+ */
+public final class ParallelInsertionResult {
+
+    private final long edgeCount;
+    private final StatisticalSummary commitLatencies;
+
+
+    ParallelInsertionResult( long edgeCount, StatisticalSummary commitLatencies ) {
+        this.edgeCount = edgeCount;
+        this.commitLatencies = commitLatencies;
+    }
+
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+
+    /**
+     * @return the commit latencies in milliseconds
+     */
+    public StatisticalSummary getCommitLatencies() {
+        return commitLatencies;
+    }
+}
@@ -0,0 +1,170 @@
+package eu.socialsensor.insert;
+
+
+import eu.socialsensor.main.BenchmarkConfiguration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Synthetic properties of the inserted vertexes and edges. The configured
+ * types are assigned to the properties in turn, so that LONG, DOUBLE gives
+ * the first property a long, the second a double, the third a long again and
+ * so on. Values are a pure function of a seed and the property index: the
+ * dataset id for vertexes and the dataset ids of the endpoints for edges, so
+ * every database and loader stores the same payload. Vertex properties are named vp0,
+ * vp1, ... and edge properties ep0, ep1, ...
+ */
+public final class PropertyPayload {
+
+    private static final String VERTEX_PREFIX = "vp";
+    private static final String EDGE_PREFIX = "ep";
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final String[] vertexKeys;
+    private final PropertyType[] vertexTypes;
+    private final String[] edgeKeys;
+    private final PropertyType[] edgeTypes;
+    private final int stringLength;
+
+
+    public PropertyPayload( BenchmarkConfiguration config ) {
+        final List<PropertyType> types = config.getPayloadTypes();
+        vertexKeys = keys( VERTEX_PREFIX, config.getPayloadVertexProperties() );
+        vertexTypes = types( types, config.getPayloadVertexProperties() );
+        edgeKeys = keys( EDGE_PREFIX, config.getPayloadEdgeProperties() );
+        edgeTypes = types( types, config.getPayloadEdgeProperties() );
+        stringLength = config.getPayloadStringLength();
+    }
+
+
+    private static String[] keys( String prefix, int count ) {
+        final String[] keys = new String[count];
+        for ( int i = 0; i < count; i++ ) {
+            keys[i] = prefix + i;
+        }
+        return keys;
+    }
+
+
+    private static PropertyType[] types( List<PropertyType> types, int count ) {
+        final PropertyType[] result = new PropertyType[count];
+        for ( int i = 0; i < count; i++ ) {
+            result[i] = types.get( i % types.size() );
+        }
+        return result;
+    }
+
+
+    public int getVertexPropertyCount() {
+        return vertexKeys.length;
+    }
+
+
+    public int getEdgePropertyCount() {
+        return edgeKeys.length;
+    }
+
+
+    public String getVertexKey( int property ) {
+        return vertexKeys[property];
+    }
+
+
+    public String getEdgeKey( int property ) {
+        return edgeKeys[property];
+    }
+
+
+    public PropertyType getVertexType( int property ) {
+        return vertexTypes[property];
+    }
+
+
+    public PropertyType getEdgeType( int property ) {
+        return edgeTypes[property];
+    }
+
+
+    public Object getVertexValue( int nodeId, int property ) {
+        return value( vertexTypes[property], nodeId, property );
+    }
+
+
+    public Object getEdgeValue( long edgeSeed, int property ) {
+        return value( edgeTypes[property], edgeSeed, property );
+    }
+
+
+    /**
+     * @return the seed of the edge values, from the dataset ids of the
+     * endpoints, so that every loader writes the same edge payload
+     */
+    public static long edgeSeed( int src, int dest ) {
+        return ((long) src << 32) | (dest & 0xffffffffL);
+    }
+
+
+    /**
+     * Adds the vertex properties to the given map
+     */
+    public Map<String, Object> putVertexProperties( Map<String, Object> properties, int nodeId ) {
+        for ( int i = 0; i < vertexKeys.length; i++ ) {
+            properties.put( vertexKeys[i], getVertexValue( nodeId, i ) );
+        }
+        return properties;
+    }
+
+
+    /**
+     * @return the edge properties, null if there are none
+     */
+    public Map<String, Object> getEdgeProperties( long edgeSeed ) {
+        if ( edgeKeys.length == 0 ) {
+            return null;
+        }
+        final Map<String, Object> properties = new HashMap<>();
+        for ( int i = 0; i < edgeKeys.length; i++ ) {
+            properties.put( edgeKeys[i], getEdgeValue( edgeSeed, i ) );
+        }
+        return properties;
+    }
+
+
+    private Object value( PropertyType type, long seed, int property ) {
+        final long random = mix( seed * GOLDEN_GAMMA + property );
+        switch ( type ) {
+            case INTEGER:
+                return (int) random;
+            case LONG:
+                return random;
+            case DOUBLE:
+                // the top 53 bits as a double in [0, 1)
+                return (random >>> 11) * 0x1.0p-53;
+            case STRING:
+                final char[] chars = new char[stringLength];
+                long bits = random;
+                for ( int i = 0; i < stringLength; i++ ) {
+                    if ( i % 12 == 0 && i > 0 ) {
+                        bits = mix( bits );
+                    }
+                    // 12 letters of 5 bits each out of every 64 bits
+                    chars[i] = (char) ('a' + (int) ((bits >>> (5 * (i % 12))) & 31) % 26);
+                }
+                return new String( chars );
+            default:
+                throw new IllegalArgumentException( "unsupported property type " + type );
+        }
+    }
+
+
+    /**
+     * The finalizer of SplitMix64
+     */
+    private static long mix( long z ) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
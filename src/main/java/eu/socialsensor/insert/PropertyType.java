@@ -0,0 +1,18 @@
+package eu.socialsensor.insert;
+
+
+/**
+ * Type of the synthetic properties that the insertions attach to vertexes and
+ * edges
+ *
+ * @see PropertyPayload
+ */
+public enum PropertyType {
+    INTEGER,
+    LONG,
+    DOUBLE,
+    /**
+     * Lowercase letters of the configured length
+     */
+    STRING
+}
@@ -0,0 +1,146 @@
+package eu.socialsensor.insert;
+
+
+import com.sparsity.sparksee.gdb.Graph;
+import com.sparsity.sparksee.io.CSVReader;
+import com.sparsity.sparksee.io.EdgeTypeLoader;
+import com.sparsity.sparksee.io.NodeTypeLoader;
+import eu.socialsensor.dataset.Dataset;
+import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.dataset.EdgeCursor;
+import eu.socialsensor.graphdatabases.SparkseeGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
+import eu.socialsensor.main.BenchmarkingException;
+import eu.socialsensor.utils.Utils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Massive insertion with the native type loaders of Sparksee. The dataset is
+ * streamed into a node and an edge CSV file in a temporary directory next to
+ * the database, and the loaders read them in two phases: all nodes first, so
+ * the edge loader finds every endpoint by its unique attribute.
+ */
+public final class SparkseeBulkLoadInsertion implements Insertion {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final String SEPARATOR = ",";
+
+    private final BenchmarkConfiguration config;
+    private final PropertyPayload payload;
+    private final Graph sparkseeGraph;
+    private final File dbStorageDirectory;
+
+
+    public SparkseeBulkLoadInsertion( BenchmarkConfiguration config, Graph sparkseeGraph, File dbStorageDirectory ) {
+        this.config = config;
+        this.payload = new PropertyPayload( config );
+        this.sparkseeGraph = sparkseeGraph;
+        this.dbStorageDirectory = dbStorageDirectory;
+    }
+
+
+    @Override
+    public void createGraph( File datasetFile, int scenarioNumber ) {
+        logger.info( "Loading data with the type loaders in {}", dbStorageDirectory.getAbsolutePath() );
+        final Dataset dataset = DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() );
+        File loadDirectory = null;
+        try {
+            loadDirectory = Files.createTempDirectory( dbStorageDirectory.getAbsoluteFile().getParentFile().toPath(), "sparksee-load" ).toFile();
+            final File nodes = new File( loadDirectory, "nodes.csv" );
+            final File edges = new File( loadDirectory, "edges.csv" );
+            writeNodes( dataset, nodes, payload );
+            writeEdges( dataset, edges, payload );
+
+            // the node id in the first column, the payload in the following ones
+            final int[] nodeAttributes = new int[1 + SparkseeGraphDatabase.VERTEX_PAYLOAD_ATTRIBUTES.length];
+            nodeAttributes[0] = SparkseeGraphDatabase.NODE_ATTRIBUTE;
+            System.arraycopy( SparkseeGraphDatabase.VERTEX_PAYLOAD_ATTRIBUTES, 0, nodeAttributes, 1, SparkseeGraphDatabase.VERTEX_PAYLOAD_ATTRIBUTES.length );
+            final CSVReader nodeReader = open( nodes );
+            try {
+                new NodeTypeLoader( nodeReader, sparkseeGraph, SparkseeGraphDatabase.NODE_TYPE, nodeAttributes, columns( 0, nodeAttributes.length ) ).run();
+            } finally {
+                nodeReader.close();
+            }
+
+            final CSVReader edgeReader = open( edges );
+            try {
+                new EdgeTypeLoader( edgeReader, sparkseeGraph, SparkseeGraphDatabase.EDGE_TYPE, SparkseeGraphDatabase.EDGE_PAYLOAD_ATTRIBUTES,
+                        columns( 2, SparkseeGraphDatabase.EDGE_PAYLOAD_ATTRIBUTES.length ),
+                        0 /* tail */, 1 /* head */, SparkseeGraphDatabase.NODE_ATTRIBUTE, SparkseeGraphDatabase.NODE_ATTRIBUTE ).run();
+            } finally {
+                edgeReader.close();
+            }
+        } catch ( IOException e ) {
+            throw new BenchmarkingException( "unable to bulk load " + datasetFile.getAbsolutePath() + " into " + dbStorageDirectory.getAbsolutePath(), e );
+        } finally {
+            if ( loadDirectory != null ) {
+                Utils.deleteRecursively( loadDirectory );
+            }
+        }
+    }
+
+
+    private static CSVReader open( File file ) throws IOException {
+        final CSVReader reader = new CSVReader();
+        reader.setSeparator( SEPARATOR );
+        reader.open( file.getAbsolutePath() );
+        return reader;
+    }
+
+
+    /**
+     * @return the positions of the given number of consecutive columns
+     */
+    private static int[] columns( int first, int count ) {
+        final int[] columns = new int[count];
+        for ( int i = 0; i < count; i++ ) {
+            columns[i] = first + i;
+        }
+        return columns;
+    }
+
+
+    /**
+     * Writes the distinct node ids, which become the unique string attribute
+     * of the nodes as in the per-call loader, and their payload
+     */
+    private static void writeNodes( Dataset dataset, File nodes, PropertyPayload payload ) throws IOException {
+        try ( Writer out = new BufferedWriter( new FileWriter( nodes ), WRITE_BUFFER_SIZE ) ) {
+            for ( int node : dataset.getNodes() ) {
+                out.write( Integer.toString( node ) );
+                for ( int i = 0; i < payload.getVertexPropertyCount(); i++ ) {
+                    out.write( SEPARATOR );
+                    out.write( payload.getVertexValue( node, i ).toString() );
+                }
+                out.write( '\n' );
+            }
+        }
+    }
+
+
+    private static void writeEdges( Dataset dataset, File edges, PropertyPayload payload ) throws IOException {
+        try ( Writer out = new BufferedWriter( new FileWriter( edges ), WRITE_BUFFER_SIZE );
+              EdgeCursor cursor = dataset.cursor() ) {
+            while ( cursor.next() ) {
+                out.write( Integer.toString( cursor.getSource() ) );
+                out.write( SEPARATOR );
+                out.write( Integer.toString( cursor.getDestination() ) );
+                final long edgeSeed = PropertyPayload.edgeSeed( cursor.getSource(), cursor.getDestination() );
+                for ( int i = 0; i < payload.getEdgePropertyCount(); i++ ) {
+                    out.write( SEPARATOR );
+                    out.write( payload.getEdgeValue( edgeSeed, i ).toString() );
+                }
+                out.write( '\n' );
+            }
+        }
+    }
+}
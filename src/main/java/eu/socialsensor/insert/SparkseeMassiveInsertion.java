@@ -5,6 +5,7 @@ import com.sparsity.sparksee.gdb.Graph;
 import com.sparsity.sparksee.gdb.Session;
 import com.sparsity.sparksee.gdb.Value;
 import eu.socialsensor.graphdatabases.SparkseeGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
 
 
@@ -12,11 +13,12 @@ public class SparkseeMassiveInsertion extends InsertionBase<Long> implements Ins
 
     private final Session session;
     private final Graph sparkseeGraph;
+    private final Value value = new Value();
     private int operations;
 
 
-    public SparkseeMassiveInsertion( Session session ) {
-        super( GraphDatabaseType.SPARKSEE, null /* resultsPath */ );
+    public SparkseeMassiveInsertion( BenchmarkConfiguration config, Session session ) {
+        super( config, GraphDatabaseType.SPARKSEE, null /* resultsPath */ );
         this.session = session;
         this.sparkseeGraph = session.getGraph();
         this.operations = 0;
@@ -24,15 +26,14 @@ public class SparkseeMassiveInsertion extends InsertionBase<Long> implements Ins
 
 
     @Override
-    public Long getOrCreate( String value ) {
-        Value sparkseeValue = new Value();
-        return sparkseeGraph.findOrCreateObject( SparkseeGraphDatabase.NODE_ATTRIBUTE, sparkseeValue.setString( value ) );
+    public Long getOrCreate( int value ) {
+        return SparkseeGraphDatabase.findOrCreateNode( sparkseeGraph, this.value, value, payload );
     }
 
 
     @Override
-    public void relateNodes( Long src, Long dest ) {
-        sparkseeGraph.newEdge( SparkseeGraphDatabase.EDGE_TYPE, src, dest );
+    public void relateNodes( Long src, Long dest, long edgeSeed ) {
+        SparkseeGraphDatabase.newEdge( sparkseeGraph, value, src, dest, edgeSeed, payload );
         operations++;
         if ( operations == 10000 ) {
             session.commit();
@@ -40,4 +41,11 @@ public class SparkseeMassiveInsertion extends InsertionBase<Long> implements Ins
             operations = 0;
         }
     }
+
+
+    @Override
+    protected InsertionWriter<Long> openWriter() {
+        // the loader has a single session, parallel loads use SparkseeSingleInsertion
+        throw new UnsupportedOperationException( type.name() + " massive insertion does not support parallel insertion" );
+    }
 }
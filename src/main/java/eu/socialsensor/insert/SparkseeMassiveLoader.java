@@ -0,0 +1,36 @@
+package eu.socialsensor.insert;
+
+
+/**
+ * How the massive insertion builds a Sparksee database
+ */
+public enum SparkseeMassiveLoader {
+    /**
+     * findOrCreateObject and newEdge per edge, committing every 10000 edges
+     */
+    PER_CALL( false ),
+    /**
+     * The native node and edge type loaders, nodes first and edges second
+     */
+    BULK_LOADER( false ),
+    /**
+     * The native loaders into an edge type that materializes the neighbors
+     */
+    BULK_LOADER_MATERIALIZED( true );
+
+    private final boolean materializedNeighbors;
+
+
+    SparkseeMassiveLoader( boolean materializedNeighbors ) {
+        this.materializedNeighbors = materializedNeighbors;
+    }
+
+
+    /**
+     * @return true if the edge type keeps an index of the neighbors of every
+     * node
+     */
+    public boolean hasMaterializedNeighbors() {
+        return materializedNeighbors;
+    }
+}
@@ -1,42 +1,119 @@
 package eu.socialsensor.insert;
 
 
+import com.sparsity.sparksee.gdb.Database;
 import com.sparsity.sparksee.gdb.Graph;
 import com.sparsity.sparksee.gdb.Session;
 import com.sparsity.sparksee.gdb.Value;
 import eu.socialsensor.graphdatabases.SparkseeGraphDatabase;
+import eu.socialsensor.main.BenchmarkConfiguration;
 import eu.socialsensor.main.GraphDatabaseType;
 import java.io.File;
 
 
 public class SparkseeSingleInsertion extends InsertionBase<Long> {
 
+    private final Database database;
     private final Session session;
     private final Graph sparkseeGraph;
 
     Value value = new Value();
 
 
-    public SparkseeSingleInsertion( Session session, File resultsPath ) {
+    public SparkseeSingleInsertion( BenchmarkConfiguration config, Database database, Session session, File resultsPath ) {
         // no temp files for massive load insert
-        super( GraphDatabaseType.SPARKSEE, resultsPath );
+        super( config, GraphDatabaseType.SPARKSEE, resultsPath );
+        this.database = database;
         this.session = session;
         this.sparkseeGraph = session.getGraph();
     }
 
 
     @Override
-    public Long getOrCreate( String value ) {
-        Value sparkseeValue = new Value();
-        return sparkseeGraph.findOrCreateObject( SparkseeGraphDatabase.NODE_ATTRIBUTE, sparkseeValue.setString( value ) );
+    public Long getOrCreate( int value ) {
+        return SparkseeGraphDatabase.findOrCreateNode( sparkseeGraph, new Value(), value, payload );
     }
 
 
     @Override
-    public void relateNodes( Long src, Long dest ) {
+    public void relateNodes( Long src, Long dest, long edgeSeed ) {
         session.begin();
-        sparkseeGraph.newEdge( SparkseeGraphDatabase.EDGE_TYPE, src, dest );
-        session.commit();
+        SparkseeGraphDatabase.newEdge( sparkseeGraph, value, src, dest, edgeSeed, payload );
+        commit( session::commit );
     }
 
+
+    /**
+     * Sessions must not be shared between threads in Sparksee, so every writer
+     * opens a session of its own. Sparksee serializes write transactions, so
+     * writers never conflict.
+     */
+    @Override
+    protected InsertionWriter<Long> openWriter() {
+        return new SparkseeWriter( database.newSession(), payload );
+    }
+
+
+    private static final class SparkseeWriter implements InsertionWriter<Long> {
+
+        private final Session session;
+        private final Graph graph;
+        private final PropertyPayload payload;
+        private final Value value = new Value();
+        private boolean inTransaction = false;
+
+
+        private SparkseeWriter( Session session, PropertyPayload payload ) {
+            this.session = session;
+            this.payload = payload;
+            this.graph = session.getGraph();
+        }
+
+
+        @Override
+        public Long getOrCreate( int nodeId ) {
+            begin();
+            return SparkseeGraphDatabase.findOrCreateNode( graph, value, nodeId, payload );
+        }
+
+
+        @Override
+        public void relateNodes( Long src, Long dest, long edgeSeed ) {
+            begin();
+            SparkseeGraphDatabase.newEdge( graph, value, src, dest, edgeSeed, payload );
+        }
+
+
+        @Override
+        public void commit() {
+            if ( inTransaction ) {
+                inTransaction = false;
+                session.commit();
+            }
+        }
+
+
+        @Override
+        public void rollback() {
+            if ( inTransaction ) {
+                inTransaction = false;
+                session.rollback();
+            }
+        }
+
+
+        @Override
+        public void close() {
+            rollback();
+            session.close();
+        }
+
+
+        private void begin() {
+            if ( !inTransaction ) {
+                session.begin();
+                inTransaction = true;
+            }
+        }
+    }
 }
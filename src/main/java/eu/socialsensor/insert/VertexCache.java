@@ -0,0 +1,99 @@
+package eu.socialsensor.insert;
+
+
+import com.carrotsearch.hppc.IntIntOpenHashMap;
+
+
+/**
+ * Bounded map from dataset ids to vertexes of the database, so that the
+ * insertion skips the lookup of endpoints it has already created. Entries are
+ * evicted with the CLOCK approximation of LRU: every entry has a reference
+ * bit that is set on a hit, and the hand sweeps the slots, clearing set bits
+ * and evicting the first entry whose bit is already clear. Not thread safe.
+ *
+ * @param <T> the Type of vertexes (graph database vendor specific)
+ */
+final class VertexCache<T> {
+
+    private final int capacity;
+    // dataset id to slot + 1, so that the 0 of a missing key means absent
+    private final IntIntOpenHashMap slots;
+    private final int[] keys;
+    private final Object[] vertexes;
+    private final boolean[] referenced;
+    private int size = 0;
+    private int hand = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+
+    VertexCache( int capacity ) {
+        if ( capacity < 1 ) {
+            throw new IllegalArgumentException( "capacity must be positive" );
+        }
+        this.capacity = capacity;
+        this.slots = new IntIntOpenHashMap( (int) Math.ceil( capacity / IntIntOpenHashMap.DEFAULT_LOAD_FACTOR ) );
+        this.keys = new int[capacity];
+        this.vertexes = new Object[capacity];
+        this.referenced = new boolean[capacity];
+    }
+
+
+    /**
+     * @return the cached vertex of the dataset id, or null on a miss
+     */
+    @SuppressWarnings( "unchecked" )
+    T get( int key ) {
+        final int slot = slots.get( key ) - 1;
+        if ( slot < 0 ) {
+            misses++;
+            return null;
+        }
+        hits++;
+        referenced[slot] = true;
+        return (T) vertexes[slot];
+    }
+
+
+    /**
+     * Caches the vertex of a dataset id that missed, evicting an entry if the
+     * cache is full
+     */
+    void put( int key, T vertex ) {
+        final int slot;
+        if ( size < capacity ) {
+            slot = size++;
+        } else {
+            while ( referenced[hand] ) {
+                referenced[hand] = false;
+                hand = (hand + 1) % capacity;
+            }
+            slot = hand;
+            hand = (hand + 1) % capacity;
+            slots.remove( keys[slot] );
+        }
+        keys[slot] = key;
+        vertexes[slot] = vertex;
+        referenced[slot] = false;
+        slots.put( key, slot + 1 );
+    }
+
+
+    long getHits() {
+        return hits;
+    }
+
+
+    long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * @return the fraction of lookups that hit, NaN before the first lookup
+     */
+    double getHitRatio() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+}
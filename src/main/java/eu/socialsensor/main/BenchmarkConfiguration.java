@@ -2,7 +2,18 @@ package eu.socialsensor.main;
 
 
 import com.google.common.primitives.Ints;
-import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.dataset.DatasetMode;
+import eu.socialsensor.dataset.GeneratedDataset;
+import eu.socialsensor.dataset.GeneratorType;
+import eu.socialsensor.dataset.ReorderedDataset;
+import eu.socialsensor.dataset.SamplingMethod;
+import eu.socialsensor.dataset.VertexOrder;
+import eu.socialsensor.graphdatabases.QueryInstrumentation;
+import eu.socialsensor.insert.ArrivalProcess;
+import eu.socialsensor.insert.Neo4jInsertionStrategy;
+import eu.socialsensor.insert.Neo4jMassiveLoader;
+import eu.socialsensor.insert.PropertyType;
+import eu.socialsensor.insert.SparkseeMassiveLoader;
 import lombok.Getter;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.RandomStringUtils;
@@ -20,11 +31,22 @@ public class BenchmarkConfiguration {
     // OrientDB Configuration
     private static final String LIGHTWEIGHT_EDGES = "lightweight-edges";
 
+    // Neo4j configuration
+    private static final String INSERTION_STRATEGIES = "insertion-strategies";
+
     // Sparksee / DEX configuration
     private static final String LICENSE_KEY = "license-key";
 
+    // Neo4j and Sparksee configuration
+    private static final String MASSIVE_LOADERS = "massive-loaders";
+
     // benchmark configuration
     private static final String DATASET = "dataset";
+    private static final String DATASET_MODE = "dataset-mode";
+    private static final String DEFERRED_INDEXES = "deferred-indexes";
+    private static final String CHECKPOINT_INTERVAL = "checkpoint-interval";
+    private static final String DATASET_MEMORY_BUDGET = "dataset-memory-budget";
+    private static final String VERTEX_ORDER = "vertex-order";
     private static final String DATABASE_STORAGE_DIRECTORY = "database-storage-directory";
     private static final String ACTUAL_COMMUNITIES = "actual-communities";
     private static final String NODES_COUNT = "nodes-count";
@@ -35,6 +57,46 @@ public class BenchmarkConfiguration {
     private static final String PERMUTE_BENCHMARKS = "permute-benchmarks";
     private static final String RANDOM_NODES = "shortest-path-random-nodes";
 
+    // scaling curves over samples of the dataset
+    private static final String SCALING_FRACTIONS = "fractions";
+    private static final String SCALING_METHOD = "method";
+    private static final String SCALING_SEED = "seed";
+
+    // parallel insertion
+    private static final String INSERTION_THREADS = "threads";
+    private static final String INSERTION_BATCH_SIZE = "batch-size";
+    private static final String INSERTION_RETRIES = "retries";
+    private static final String INSERTION_BATCH_SIZES = "batch-sizes";
+    private static final String INSERTION_VERTEX_CACHE_SIZE = "vertex-cache-size";
+    private static final List<Integer> DEFAULT_INSERTION_BATCH_SIZES = Arrays.asList( 1, 10, 100, 1000, 10000, 100000 );
+
+    // parallel traversal
+    private static final String TRAVERSAL_THREADS = "threads";
+
+    // query instrumentation
+    private static final String QUERY_INSTRUMENTATION = "instrumentation";
+    private static final String QUERY_SAMPLE_INTERVAL = "sample-interval";
+
+    // open loop insertion
+    private static final String OPEN_LOOP_RATES = "rates";
+    private static final String OPEN_LOOP_ARRIVALS = "arrivals";
+    private static final String OPEN_LOOP_EDGES = "edges";
+    private static final String OPEN_LOOP_SLO_P99 = "slo-p99-ms";
+    private static final List<Double> DEFAULT_OPEN_LOOP_RATES = Arrays.asList( 100.0, 1000.0, 10000.0 );
+
+    // property payloads
+    private static final String PAYLOAD_VERTEX_PROPERTIES = "vertex-properties";
+    private static final String PAYLOAD_EDGE_PROPERTIES = "edge-properties";
+    private static final String PAYLOAD_TYPES = "types";
+    private static final String PAYLOAD_STRING_LENGTH = "string-length";
+
+    // synthetic dataset generation
+    private static final String GENERATOR_TYPE = "type";
+    private static final String GENERATOR_NODES = "nodes";
+    private static final String GENERATOR_AVERAGE_DEGREE = "average-degree";
+    private static final String GENERATOR_SEED = "seed";
+    private static final String GENERATOR_DIRECTORY = "directory";
+
     private static final Set<String> metricsReporters = new HashSet<>();
 
 
@@ -44,6 +106,9 @@ public class BenchmarkConfiguration {
 
 
     @Getter private final File dataset;
+    @Getter private final DatasetMode datasetMode;
+    @Getter private final Long datasetMemoryBudget; // megabytes of heap for shared datasets, null for the default
+    @Getter private final VertexOrder vertexOrder;
     @Getter private final List<BenchmarkType> benchmarkTypes;
     @Getter private final SortedSet<GraphDatabaseType> selectedDatabases;
     @Getter private final File resultsPath;
@@ -57,7 +122,10 @@ public class BenchmarkConfiguration {
 
     // storage backend specific settings
     @Getter private final Boolean orientLightweightEdges; // Orient
+    @Getter private final List<Neo4jInsertionStrategy> neo4jInsertionStrategies; // Neo4j, the first one loads the graph
+    @Getter private final List<Neo4jMassiveLoader> neo4jMassiveLoaders; // Neo4j, the first one loads the graph
     @Getter private final String sparkseeLicenseKey;  // Sparksee
+    @Getter private final List<SparkseeMassiveLoader> sparkseeMassiveLoaders; // Sparksee, the first one loads the graph
 
     // shortest path
     @Getter private final int randomNodes;
@@ -72,6 +140,41 @@ public class BenchmarkConfiguration {
     @Getter private final boolean permuteBenchmarks;
     @Getter private final int scenarios;
 
+    // parallel insertion
+    @Getter private final int insertionThreads; // most writer threads, the sweep starts at one
+    @Getter private final int insertionBatchSize; // edges per transaction of a writer
+    @Getter private final int insertionRetries; // retries of a batch after conflicts with other writers
+    @Getter private final List<Integer> insertionBatchSizes; // edges per transaction swept by the batched insertion
+    @Getter private final int insertionVertexCacheSize; // vertexes cached by the single insertion, 0 to look up every endpoint
+
+    // parallel traversal
+    @Getter private final int traversalThreads; // most reader threads, the sweep starts at one
+
+    // query instrumentation
+    @Getter private final QueryInstrumentation queryInstrumentation; // how the query loops measure their operations
+    @Getter private final int querySampleInterval; // operations per timed one when sampled
+
+    // open loop insertion
+    @Getter private final List<Double> openLoopRates; // arrival rates in edges/s, ascending
+    @Getter private final ArrivalProcess openLoopArrivals;
+    @Getter private final long openLoopEdges; // edges inserted at every rate, 0 for the whole dataset
+    @Getter private final double openLoopSloP99Millis; // the p99 latency a sustainable rate must keep
+
+    // property payloads
+    @Getter private final int payloadVertexProperties; // synthetic properties per vertex besides the node id
+    @Getter private final int payloadEdgeProperties; // synthetic properties per edge
+    @Getter private final List<PropertyType> payloadTypes; // assigned to the properties in turn
+    @Getter private final int payloadStringLength; // characters of the string properties
+
+    // massive insertion
+    @Getter private final boolean deferredIndexes; // build the indexes after the data instead of maintaining them during the load
+    @Getter private final long checkpointInterval; // edges between checkpoints of a resumable load, 0 for none
+
+    // scaling
+    @Getter private final List<Double> scalingFractions; // empty to run on the full dataset only
+    @Getter private final SamplingMethod samplingMethod;
+    @Getter private final long samplingSeed;
+
 
 
     public BenchmarkConfiguration( Configuration appconfig ) {
@@ -92,8 +195,31 @@ public class BenchmarkConfiguration {
         Configuration orient = socialsensor.subset( "orient" );
         orientLightweightEdges = orient.containsKey( LIGHTWEIGHT_EDGES ) ? orient.getBoolean( LIGHTWEIGHT_EDGES ) : null;
 
+        Configuration neo4j = socialsensor.subset( "neo4j" );
+        neo4jInsertionStrategies = new ArrayList<>();
+        for ( Object strategy : neo4j.getList( INSERTION_STRATEGIES ) ) {
+            neo4jInsertionStrategies.add( Neo4jInsertionStrategy.valueOf( strategy.toString() ) );
+        }
+        if ( neo4jInsertionStrategies.isEmpty() ) {
+            neo4jInsertionStrategies.add( Neo4jInsertionStrategy.CYPHER_MERGE );
+        }
+        neo4jMassiveLoaders = new ArrayList<>();
+        for ( Object loader : neo4j.getList( MASSIVE_LOADERS ) ) {
+            neo4jMassiveLoaders.add( Neo4jMassiveLoader.valueOf( loader.toString() ) );
+        }
+        if ( neo4jMassiveLoaders.isEmpty() ) {
+            neo4jMassiveLoaders.add( Neo4jMassiveLoader.BATCH_INSERTER );
+        }
+
         Configuration sparksee = socialsensor.subset( "sparksee" );
         sparkseeLicenseKey = sparksee.containsKey( LICENSE_KEY ) ? sparksee.getString( LICENSE_KEY ) : null;
+        sparkseeMassiveLoaders = new ArrayList<>();
+        for ( Object loader : sparksee.getList( MASSIVE_LOADERS ) ) {
+            sparkseeMassiveLoaders.add( SparkseeMassiveLoader.valueOf( loader.toString() ) );
+        }
+        if ( sparkseeMassiveLoaders.isEmpty() ) {
+            sparkseeMassiveLoaders.add( SparkseeMassiveLoader.PER_CALL );
+        }
 
 
         // database storage directory
@@ -101,10 +227,31 @@ public class BenchmarkConfiguration {
             throw new IllegalArgumentException( "configuration must specify database-storage-directory" );
         }
         dbStorageDirectory = new File( socialsensor.getString( DATABASE_STORAGE_DIRECTORY ) );
-        dataset = validateReadableFile( socialsensor.getString( DATASET ), DATASET );
-
-        // load the dataset
-        DatasetFactory.getInstance().getDataset( dataset );
+        final Configuration generator = socialsensor.subset( "generator" );
+        final GeneratedDataset generated;
+        final File datasetSource;
+        if ( generator.containsKey( GENERATOR_TYPE ) ) {
+            if ( !generator.containsKey( GENERATOR_NODES ) ) {
+                throw new IllegalArgumentException( "a generated dataset requires generator.nodes in config" );
+            }
+            generated = new GeneratedDataset(
+                    GeneratorType.valueOf( generator.getString( GENERATOR_TYPE ) ),
+                    generator.getInt( GENERATOR_NODES ),
+                    generator.getInt( GENERATOR_AVERAGE_DEGREE, 20 ),
+                    generator.getLong( GENERATOR_SEED, 1L ),
+                    new File( generator.getString( GENERATOR_DIRECTORY, "data/generated" ) ) );
+            generated.ensureGenerated();
+            datasetSource = generated.getEdgeFile();
+        } else {
+            generated = null;
+            datasetSource = validateReadableFile( socialsensor.getString( DATASET ), DATASET );
+        }
+        vertexOrder = VertexOrder.valueOf( socialsensor.getString( VERTEX_ORDER, VertexOrder.ORIGINAL.name() ) );
+        final ReorderedDataset reordered = reorder( datasetSource, vertexOrder );
+        dataset = reordered == null ? datasetSource : reordered.getEdgeFile();
+        // the dataset itself is loaded lazily by the benchmarks that need it
+        datasetMode = DatasetMode.valueOf( socialsensor.getString( DATASET_MODE, DatasetMode.MAPPED.name() ) );
+        datasetMemoryBudget = socialsensor.containsKey( DATASET_MEMORY_BUDGET ) ? socialsensor.getLong( DATASET_MEMORY_BUDGET ) : null;
 
         if ( !socialsensor.containsKey( PERMUTE_BENCHMARKS ) ) {
             throw new IllegalArgumentException( "configuration must set permute-benchmarks to true or false" );
@@ -136,21 +283,89 @@ public class BenchmarkConfiguration {
 
         randomNodes = socialsensor.getInteger( RANDOM_NODES, 100 );
 
+        final Configuration insertion = socialsensor.subset( "insertion" );
+        insertionThreads = insertion.getInt( INSERTION_THREADS, Runtime.getRuntime().availableProcessors() );
+        insertionBatchSize = insertion.getInt( INSERTION_BATCH_SIZE, 1000 );
+        insertionRetries = insertion.getInt( INSERTION_RETRIES, 10 );
+        if ( insertion.containsKey( INSERTION_BATCH_SIZES ) ) {
+            insertionBatchSizes = new ArrayList<>();
+            for ( Object batchSize : insertion.getList( INSERTION_BATCH_SIZES ) ) {
+                insertionBatchSizes.add( Integer.valueOf( batchSize.toString() ) );
+            }
+            Collections.sort( insertionBatchSizes );
+        } else {
+            insertionBatchSizes = DEFAULT_INSERTION_BATCH_SIZES;
+        }
+        insertionVertexCacheSize = insertion.getInt( INSERTION_VERTEX_CACHE_SIZE, 0 );
+        deferredIndexes = socialsensor.getBoolean( DEFERRED_INDEXES, false );
+        checkpointInterval = socialsensor.getLong( CHECKPOINT_INTERVAL, 0L );
+
+        traversalThreads = socialsensor.subset( "traversal" ).getInt( TRAVERSAL_THREADS, Runtime.getRuntime().availableProcessors() );
+
+        final Configuration query = socialsensor.subset( "query" );
+        queryInstrumentation = QueryInstrumentation.valueOf( query.getString( QUERY_INSTRUMENTATION, QueryInstrumentation.FULL.name() ) );
+        querySampleInterval = query.getInt( QUERY_SAMPLE_INTERVAL, 1000 );
+
+        final Configuration openLoop = socialsensor.subset( "open-loop" );
+        if ( openLoop.containsKey( OPEN_LOOP_RATES ) ) {
+            openLoopRates = new ArrayList<>();
+            for ( Object rate : openLoop.getList( OPEN_LOOP_RATES ) ) {
+                openLoopRates.add( Double.valueOf( rate.toString() ) );
+            }
+            Collections.sort( openLoopRates );
+        } else {
+            openLoopRates = DEFAULT_OPEN_LOOP_RATES;
+        }
+        openLoopArrivals = ArrivalProcess.valueOf( openLoop.getString( OPEN_LOOP_ARRIVALS, ArrivalProcess.POISSON.name() ) );
+        openLoopEdges = openLoop.getLong( OPEN_LOOP_EDGES, 0L );
+        openLoopSloP99Millis = openLoop.getDouble( OPEN_LOOP_SLO_P99, 10.0 );
+
+        final Configuration payload = socialsensor.subset( "payload" );
+        payloadVertexProperties = payload.getInt( PAYLOAD_VERTEX_PROPERTIES, 0 );
+        payloadEdgeProperties = payload.getInt( PAYLOAD_EDGE_PROPERTIES, 0 );
+        payloadTypes = new ArrayList<>();
+        for ( Object type : payload.getList( PAYLOAD_TYPES ) ) {
+            payloadTypes.add( PropertyType.valueOf( type.toString() ) );
+        }
+        if ( payloadTypes.isEmpty() ) {
+            payloadTypes.add( PropertyType.LONG );
+        }
+        payloadStringLength = payload.getInt( PAYLOAD_STRING_LENGTH, 16 );
+        validate();
+
+        final Configuration scaling = socialsensor.subset( "scaling" );
+        scalingFractions = new ArrayList<>();
+        for ( Object fraction : scaling.getList( SCALING_FRACTIONS ) ) {
+            scalingFractions.add( Double.valueOf( fraction.toString() ) );
+        }
+        Collections.sort( scalingFractions );
+        samplingMethod = SamplingMethod.valueOf( scaling.getString( SCALING_METHOD, SamplingMethod.NODE_INDUCED.name() ) );
+        samplingSeed = scaling.getLong( SCALING_SEED, 1L );
+
         if ( this.benchmarkTypes.contains( BenchmarkType.CLUSTERING ) ) {
-            if ( !socialsensor.containsKey( NODES_COUNT ) ) {
+            if ( socialsensor.containsKey( NODES_COUNT ) ) {
+                nodesCount = socialsensor.getInt( NODES_COUNT );
+            } else if ( generated != null ) {
+                nodesCount = generator.getInt( GENERATOR_NODES );
+            } else {
                 throw new IllegalArgumentException( "the CW benchmark requires nodes-count integer in config" );
             }
-            nodesCount = socialsensor.getInt( NODES_COUNT );
 
             if ( !socialsensor.containsKey( RANDOMIZE_CLUSTERING ) ) {
                 throw new IllegalArgumentException( "the CW benchmark requires randomize-clustering bool in config" );
             }
             randomizedClustering = socialsensor.getBoolean( RANDOMIZE_CLUSTERING );
 
-            if ( !socialsensor.containsKey( ACTUAL_COMMUNITIES ) ) {
+            final File communities;
+            if ( socialsensor.containsKey( ACTUAL_COMMUNITIES ) ) {
+                communities = validateReadableFile( socialsensor.getString( ACTUAL_COMMUNITIES ), ACTUAL_COMMUNITIES );
+            } else if ( generated != null && generated.getCommunityFile() != null ) {
+                communities = generated.getCommunityFile();
+            } else {
                 throw new IllegalArgumentException( "the CW benchmark requires a file with actual communities" );
             }
-            actualCommunities = validateReadableFile( socialsensor.getString( ACTUAL_COMMUNITIES ), ACTUAL_COMMUNITIES );
+            // relabeled nodes need relabeled communities
+            actualCommunities = reordered == null ? communities : reordered.remapCommunities( communities );
 
             final boolean notGenerating = socialsensor.containsKey( CACHE_VALUES );
             if ( notGenerating ) {
@@ -222,6 +437,10 @@ public class BenchmarkConfiguration {
 
         // ---- Settings from Chronos ----
 
+        datasetMode = DatasetMode.valueOf( settings.getOrDefault( "datasetMode", DatasetMode.MAPPED.name() ) );
+        datasetMemoryBudget = settings.containsKey( "datasetMemoryBudget" ) ? Long.parseLong( settings.get( "datasetMemoryBudget" ) ) : null;
+        vertexOrder = VertexOrder.valueOf( settings.getOrDefault( "vertexOrder", VertexOrder.ORIGINAL.name() ) );
+
         benchmarkTypes = new ArrayList<>();
 
         // Insertion Workload
@@ -232,8 +451,9 @@ public class BenchmarkConfiguration {
             benchmarkTypes.add( BenchmarkType.valueOf( settings.get( "queryWorkload" ) ) );
 
             // Dataset
-            dataset = validateReadableFile( "data/" + settings.get( "dataset" ) + ".txt", DATASET );
-            DatasetFactory.getInstance().getDataset( dataset );
+            final File datasetSource = validateReadableFile( "data/" + settings.get( "dataset" ) + ".txt", DATASET );
+            final ReorderedDataset reordered = reorder( datasetSource, vertexOrder );
+            dataset = reordered == null ? datasetSource : reordered.getEdgeFile();
 
             randomizedClustering = null;
             nodesCount = null;
@@ -248,9 +468,29 @@ public class BenchmarkConfiguration {
 
             // Dataset
             nodesCount = Integer.parseInt( settings.get("nodesCount" ) );
-            dataset = validateReadableFile( "data/network" + nodesCount + ".dat", DATASET );
-            actualCommunities = validateReadableFile( "data/community" + nodesCount + ".dat", ACTUAL_COMMUNITIES );
-            DatasetFactory.getInstance().getDataset( dataset );
+            final File datasetSource;
+            final File communities;
+            if ( settings.containsKey( "generator" ) ) {
+                // generate the planted-community graph instead of reading the downloaded LFR files
+                final GeneratedDataset generated = new GeneratedDataset(
+                        GeneratorType.valueOf( settings.get( "generator" ) ),
+                        nodesCount,
+                        Integer.parseInt( settings.getOrDefault( "averageDegree", "20" ) ),
+                        Long.parseLong( settings.getOrDefault( "seed", "1" ) ),
+                        new File( "data/generated" ) );
+                if ( generated.getCommunityFile() == null ) {
+                    throw new IllegalArgumentException( "the clustering workload requires a generator with communities" );
+                }
+                generated.ensureGenerated();
+                datasetSource = generated.getEdgeFile();
+                communities = generated.getCommunityFile();
+            } else {
+                datasetSource = validateReadableFile( "data/network" + nodesCount + ".dat", DATASET );
+                communities = validateReadableFile( "data/community" + nodesCount + ".dat", ACTUAL_COMMUNITIES );
+            }
+            final ReorderedDataset reordered = reorder( datasetSource, vertexOrder );
+            dataset = reordered == null ? datasetSource : reordered.getEdgeFile();
+            actualCommunities = reordered == null ? communities : reordered.remapCommunities( communities );
 
             randomizedClustering = Boolean.parseBoolean( settings.get("randomizeClustering" ) );
 
@@ -278,12 +518,162 @@ public class BenchmarkConfiguration {
         // Orient
         orientLightweightEdges = settings.containsKey( "orientdb-lightweightEdges" ) ? Boolean.parseBoolean( settings.get( "orientdb.lightweightEdges" ) ) : null;
 
+        // Neo4j
+        neo4jInsertionStrategies = new ArrayList<>();
+        for ( String strategy : settings.getOrDefault( "neo4j.insertionStrategies", Neo4jInsertionStrategy.CYPHER_MERGE.name() ).split( "," ) ) {
+            neo4jInsertionStrategies.add( Neo4jInsertionStrategy.valueOf( strategy.trim() ) );
+        }
+        neo4jMassiveLoaders = new ArrayList<>();
+        for ( String loader : settings.getOrDefault( "neo4j.massiveLoaders", Neo4jMassiveLoader.BATCH_INSERTER.name() ).split( "," ) ) {
+            neo4jMassiveLoaders.add( Neo4jMassiveLoader.valueOf( loader.trim() ) );
+        }
+
         // Sparksee
         sparkseeLicenseKey = settings.getOrDefault( "sparksee.licenseKey", null );
+        sparkseeMassiveLoaders = new ArrayList<>();
+        for ( String loader : settings.getOrDefault( "sparksee.massiveLoaders", SparkseeMassiveLoader.PER_CALL.name() ).split( "," ) ) {
+            sparkseeMassiveLoaders.add( SparkseeMassiveLoader.valueOf( loader.trim() ) );
+        }
 
         // Metrics
         this.csvReportingInterval = settings.containsKey("csvReportingInterval") ? Long.parseLong( settings.get("csvReportingInterval")) : 1000;
 
+        // Parallel insertion
+        insertionThreads = Integer.parseInt( settings.getOrDefault( "insertionThreads", String.valueOf( Runtime.getRuntime().availableProcessors() ) ) );
+        insertionBatchSize = Integer.parseInt( settings.getOrDefault( "insertionBatchSize", "1000" ) );
+        insertionRetries = Integer.parseInt( settings.getOrDefault( "insertionRetries", "10" ) );
+        if ( settings.containsKey( "insertionBatchSizes" ) ) {
+            insertionBatchSizes = new ArrayList<>();
+            for ( String batchSize : settings.get( "insertionBatchSizes" ).split( "," ) ) {
+                insertionBatchSizes.add( Integer.valueOf( batchSize.trim() ) );
+            }
+            Collections.sort( insertionBatchSizes );
+        } else {
+            insertionBatchSizes = DEFAULT_INSERTION_BATCH_SIZES;
+        }
+        insertionVertexCacheSize = Integer.parseInt( settings.getOrDefault( "insertionVertexCacheSize", "0" ) );
+
+        // Parallel traversal
+        traversalThreads = Integer.parseInt( settings.getOrDefault( "traversalThreads", String.valueOf( Runtime.getRuntime().availableProcessors() ) ) );
+
+        // Query instrumentation
+        queryInstrumentation = QueryInstrumentation.valueOf( settings.getOrDefault( "queryInstrumentation", QueryInstrumentation.FULL.name() ) );
+        querySampleInterval = Integer.parseInt( settings.getOrDefault( "querySampleInterval", "1000" ) );
+
+        // Open loop insertion
+        if ( settings.containsKey( "openLoopRates" ) ) {
+            openLoopRates = new ArrayList<>();
+            for ( String rate : settings.get( "openLoopRates" ).split( "," ) ) {
+                openLoopRates.add( Double.valueOf( rate.trim() ) );
+            }
+            Collections.sort( openLoopRates );
+        } else {
+            openLoopRates = DEFAULT_OPEN_LOOP_RATES;
+        }
+        openLoopArrivals = ArrivalProcess.valueOf( settings.getOrDefault( "openLoopArrivals", ArrivalProcess.POISSON.name() ) );
+        openLoopEdges = Long.parseLong( settings.getOrDefault( "openLoopEdges", "0" ) );
+        openLoopSloP99Millis = Double.parseDouble( settings.getOrDefault( "openLoopSloP99Millis", "10" ) );
+
+        // Property payloads
+        payloadVertexProperties = Integer.parseInt( settings.getOrDefault( "payloadVertexProperties", "0" ) );
+        payloadEdgeProperties = Integer.parseInt( settings.getOrDefault( "payloadEdgeProperties", "0" ) );
+        payloadTypes = new ArrayList<>();
+        for ( String type : settings.getOrDefault( "payloadTypes", PropertyType.LONG.name() ).split( "," ) ) {
+            payloadTypes.add( PropertyType.valueOf( type.trim() ) );
+        }
+        payloadStringLength = Integer.parseInt( settings.getOrDefault( "payloadStringLength", "16" ) );
+
+        // Massive insertion
+        deferredIndexes = Boolean.parseBoolean( settings.getOrDefault( "deferredIndexes", "false" ) );
+        checkpointInterval = Long.parseLong( settings.getOrDefault( "checkpointInterval", "0" ) );
+
+        // Scaling
+        scalingFractions = new ArrayList<>();
+        if ( settings.containsKey( "scalingFractions" ) ) {
+            for ( String fraction : settings.get( "scalingFractions" ).split( "," ) ) {
+                scalingFractions.add( Double.valueOf( fraction.trim() ) );
+            }
+            Collections.sort( scalingFractions );
+        }
+        samplingMethod = SamplingMethod.valueOf( settings.getOrDefault( "samplingMethod", SamplingMethod.NODE_INDUCED.name() ) );
+        samplingSeed = Long.parseLong( settings.getOrDefault( "samplingSeed", "1" ) );
+        validate();
+    }
+
+
+    /**
+     * Copy for one point of a scaling curve, which runs the same benchmarks on
+     * a sample of the dataset. The copy gets its own results and storage
+     * subdirectories and reports no CSV metrics or scaling of its own.
+     */
+    private BenchmarkConfiguration( BenchmarkConfiguration other, String label, File dataset, File actualCommunities, Integer nodesCount ) {
+        this.dataset = dataset;
+        this.datasetMode = other.datasetMode;
+        this.datasetMemoryBudget = other.datasetMemoryBudget;
+        this.vertexOrder = other.vertexOrder;
+        this.benchmarkTypes = other.benchmarkTypes;
+        this.selectedDatabases = other.selectedDatabases;
+        this.resultsPath = new File( other.resultsPath, label );
+        if ( !resultsPath.exists() && !resultsPath.mkdirs() ) {
+            throw new IllegalArgumentException( "unable to create results directory" );
+        }
+        this.dbStorageDirectory = new File( other.dbStorageDirectory, label );
+        this.csvReportingInterval = other.csvReportingInterval;
+        this.csvDir = null;
+        this.orientLightweightEdges = other.orientLightweightEdges;
+        this.neo4jInsertionStrategies = other.neo4jInsertionStrategies;
+        this.neo4jMassiveLoaders = other.neo4jMassiveLoaders;
+        this.sparkseeLicenseKey = other.sparkseeLicenseKey;
+        this.sparkseeMassiveLoaders = other.sparkseeMassiveLoaders;
+        this.randomNodes = other.randomNodes;
+        this.randomizedClustering = other.randomizedClustering;
+        this.nodesCount = nodesCount;
+        this.cacheValuesCount = other.cacheValuesCount;
+        this.cacheIncrementFactor = other.cacheIncrementFactor;
+        this.cacheValues = other.cacheValues;
+        this.actualCommunities = actualCommunities;
+        this.permuteBenchmarks = other.permuteBenchmarks;
+        this.scenarios = other.scenarios;
+        this.insertionThreads = other.insertionThreads;
+        this.insertionBatchSize = other.insertionBatchSize;
+        this.insertionRetries = other.insertionRetries;
+        this.insertionBatchSizes = other.insertionBatchSizes;
+        this.insertionVertexCacheSize = other.insertionVertexCacheSize;
+        this.traversalThreads = other.traversalThreads;
+        this.queryInstrumentation = other.queryInstrumentation;
+        this.querySampleInterval = other.querySampleInterval;
+        this.openLoopRates = other.openLoopRates;
+        this.openLoopArrivals = other.openLoopArrivals;
+        this.openLoopEdges = other.openLoopEdges;
+        this.openLoopSloP99Millis = other.openLoopSloP99Millis;
+        this.payloadVertexProperties = other.payloadVertexProperties;
+        this.payloadEdgeProperties = other.payloadEdgeProperties;
+        this.payloadTypes = other.payloadTypes;
+        this.payloadStringLength = other.payloadStringLength;
+        this.deferredIndexes = other.deferredIndexes;
+        this.checkpointInterval = other.checkpointInterval;
+        this.scalingFractions = Collections.emptyList();
+        this.samplingMethod = other.samplingMethod;
+        this.samplingSeed = other.samplingSeed;
+    }
+
+
+    public BenchmarkConfiguration forSample( String label, File dataset, File actualCommunities, Integer nodesCount ) {
+        return new BenchmarkConfiguration( this, label, dataset, actualCommunities, nodesCount );
+    }
+
+
+    /**
+     * @return the reordered dataset, written if it is not up to date, or null
+     * to use the dataset as it is
+     */
+    private static ReorderedDataset reorder( File datasetFile, VertexOrder order ) {
+        if ( order == VertexOrder.ORIGINAL ) {
+            return null;
+        }
+        final ReorderedDataset reordered = new ReorderedDataset( datasetFile, order );
+        reordered.ensureReordered();
+        return reordered;
     }
 
 
@@ -300,6 +690,41 @@ public class BenchmarkConfiguration {
     }
 
 
+    /**
+     * Checks the options that both constructors read, once they are set
+     */
+    private void validate() {
+        if ( checkpointInterval < 0 ) {
+            throw new IllegalArgumentException( "checkpoint interval must not be negative" );
+        }
+        if ( checkpointInterval > 0 ) {
+            for ( GraphDatabaseType database : selectedDatabases ) {
+                if ( !database.supportsCheckpoints() ) {
+                    throw new IllegalArgumentException( String.format( "%s does not support checkpoints, unset %s or deselect it", database.getShortname(), CHECKPOINT_INTERVAL ) );
+                }
+            }
+        }
+        if ( insertionThreads < 1 || insertionBatchSize < 1 || insertionRetries < 0 || insertionBatchSizes.isEmpty() || insertionBatchSizes.get( 0 ) < 1 ) {
+            throw new IllegalArgumentException( "insertion threads and batch sizes must be positive and retries must not be negative" );
+        }
+        if ( insertionVertexCacheSize < 0 ) {
+            throw new IllegalArgumentException( "vertex cache size must not be negative" );
+        }
+        if ( traversalThreads < 1 ) {
+            throw new IllegalArgumentException( "traversal threads must be positive" );
+        }
+        if ( querySampleInterval < 1 ) {
+            throw new IllegalArgumentException( "query sample interval must be positive" );
+        }
+        if ( openLoopRates.isEmpty() || openLoopRates.get( 0 ) <= 0 || openLoopEdges < 0 || openLoopSloP99Millis <= 0 ) {
+            throw new IllegalArgumentException( "open loop rates and latency objective must be positive and edges must not be negative" );
+        }
+        if ( payloadVertexProperties < 0 || payloadEdgeProperties < 0 || payloadStringLength < 0 ) {
+            throw new IllegalArgumentException( "payload property counts and string length must not be negative" );
+        }
+    }
+
+
 
     public boolean publishCsvMetrics() {
         return csvDir != null;
@@ -11,8 +11,12 @@ import java.util.Set;
 public enum BenchmarkType {
     MASSIVE_INSERTION( "Massive Insertion", "MassiveInsertion" ),
     SINGLE_INSERTION( "Single Insertion", "SingleInsertion" ),
+    PARALLEL_INSERTION( "Parallel Insertion", "ParallelInsertion" ),
+    BATCHED_INSERTION( "Batched Insertion", "BatchedInsertion" ),
+    OPEN_LOOP_INSERTION( "Open Loop Insertion", "OpenLoopInsertion" ),
     DELETION( "Delete Graph", "DeleteGraph" ),
     FIND_NEIGHBOURS( "Find Neighbours of All Nodes", "FindNeighbours" ),
+    PARALLEL_FIND_NEIGHBOURS( "Find Neighbours of All Nodes in Parallel", "ParallelFindNeighbours" ),
     FIND_ADJACENT_NODES( "Find Adjacent Nodes of All Edges", "FindAdjacent" ),
     FIND_SHORTEST_PATH( "Find Shortest Path", "FindShortest" ),
     CLUSTERING( "Clustering", "Clustering" );
@@ -23,6 +27,9 @@ public enum BenchmarkType {
     static {
         INSERTING_BENCHMARK_SET.add( MASSIVE_INSERTION );
         INSERTING_BENCHMARK_SET.add( SINGLE_INSERTION );
+        INSERTING_BENCHMARK_SET.add( PARALLEL_INSERTION );
+        INSERTING_BENCHMARK_SET.add( BATCHED_INSERTION );
+        INSERTING_BENCHMARK_SET.add( OPEN_LOOP_INSERTION );
     }
 
 
@@ -44,4 +51,9 @@ public enum BenchmarkType {
     public String getResultsFileName() {
         return filenamePrefix + ".csv";
     }
+
+
+    public String getChecksumsFileName() {
+        return filenamePrefix + "Checksums.csv";
+    }
 }
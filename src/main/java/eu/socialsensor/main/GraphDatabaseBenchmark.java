@@ -4,17 +4,23 @@ package eu.socialsensor.main;
 import com.codahale.metrics.CsvReporter;
 import com.codahale.metrics.MetricRegistry;
 import eu.socialsensor.benchmarks.*;
+import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.utils.Utils;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileDeleteStrategy;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 
@@ -31,10 +37,15 @@ public class GraphDatabaseBenchmark {
     private final BenchmarkConfiguration config;
 
     private final CsvReporter reporter;
+    // mean time in seconds of every database in every finished benchmark
+    private final Map<BenchmarkType, Map<GraphDatabaseType, Double>> meanTimes = new EnumMap<>( BenchmarkType.class );
 
 
     public GraphDatabaseBenchmark( BenchmarkConfiguration benchmarkConfiguration ) throws IllegalArgumentException {
         config = benchmarkConfiguration;
+        if ( config.getDatasetMemoryBudget() != null ) {
+            DatasetFactory.getInstance().setMemoryBudget( config.getDatasetMemoryBudget() << 20 );
+        }
         if ( config.publishCsvMetrics() ) {
             reporter = CsvReporter.forRegistry( metrics )
                     .formatFor( Locale.US )
@@ -50,13 +61,26 @@ public class GraphDatabaseBenchmark {
 
     public void run() {
         //MetricRegistry registry = MetricRegistry.name(klass, names)
-        for ( BenchmarkType type : config.getBenchmarkTypes() ) {
-            runBenchmark( type );
+        if ( !config.getScalingFractions().isEmpty() ) {
+            new ScalingRunner( config ).run();
+        } else {
+            for ( BenchmarkType type : config.getBenchmarkTypes() ) {
+                runBenchmark( type );
+            }
         }
         stopCsvRecorder();
     }
 
 
+    /**
+     * @return the mean time in seconds of every database in every benchmark
+     * that reports times per database
+     */
+    public Map<BenchmarkType, Map<GraphDatabaseType, Double>> getMeanTimes() {
+        return meanTimes;
+    }
+
+
     private final void runBenchmark( BenchmarkType type ) {
         final Benchmark benchmark;
         logger.info( type.longname() + " benchmark selected" );
@@ -67,6 +91,15 @@ public class GraphDatabaseBenchmark {
             case SINGLE_INSERTION:
                 benchmark = new SingleInsertionBenchmark( config );
                 break;
+            case PARALLEL_INSERTION:
+                benchmark = new ParallelInsertionBenchmark( config );
+                break;
+            case BATCHED_INSERTION:
+                benchmark = new BatchedInsertionBenchmark( config );
+                break;
+            case OPEN_LOOP_INSERTION:
+                benchmark = new OpenLoopInsertionBenchmark( config );
+                break;
             case FIND_ADJACENT_NODES:
                 benchmark = new FindNodesOfAllEdgesBenchmark( config );
                 break;
@@ -76,6 +109,9 @@ public class GraphDatabaseBenchmark {
             case FIND_NEIGHBOURS:
                 benchmark = new FindNeighboursOfAllNodesBenchmark( config );
                 break;
+            case PARALLEL_FIND_NEIGHBOURS:
+                benchmark = new ParallelFindNeighboursBenchmark( config );
+                break;
             case FIND_SHORTEST_PATH:
                 benchmark = new FindShortestPathBenchmark( config );
                 break;
@@ -86,11 +122,21 @@ public class GraphDatabaseBenchmark {
                 throw new UnsupportedOperationException( "unsupported benchmark " + type == null ? "null" : type.toString() );
         }
         benchmark.startBenchmark();
+
+        if ( benchmark instanceof PermutingBenchmarkBase ) {
+            final Map<GraphDatabaseType, Double> means = new EnumMap<>( GraphDatabaseType.class );
+            for ( Map.Entry<GraphDatabaseType, List<Double>> entry : ((PermutingBenchmarkBase) benchmark).getTimes().entrySet() ) {
+                means.put( entry.getKey(), new DescriptiveStatistics( Utils.convert( entry.getValue() ) ).getMean() / 1000 );
+            }
+            meanTimes.put( type, means );
+        }
     }
 
 
     public void stopCsvRecorder() {
-        reporter.stop();
+        if ( reporter != null ) {
+            reporter.stop();
+        }
     }
 
 
@@ -11,13 +11,15 @@ import java.util.Map;
  * @author Alexander Patrikalakis
  */
 public enum GraphDatabaseType {
-    ORIENT_DB( "OrientDB", null, "orient" ),
-    NEO4J( "Neo4j", null, "neo4j" ),
-    SPARKSEE( "Sparksee", null, "sparksee" );
+    ORIENT_DB( "OrientDB", null, "orient", false ),
+    NEO4J( "Neo4j", null, "neo4j", true ),
+    SPARKSEE( "Sparksee", null, "sparksee", false );
 
     private final String backend;
     private final String api;
     private final String shortname;
+    // whether the massive load can be checkpointed and resumed
+    private final boolean checkpoints;
 
     public static final Map<String, GraphDatabaseType> STRING_REP_MAP = new HashMap<>();
 
@@ -29,10 +31,11 @@ public enum GraphDatabaseType {
     }
 
 
-    GraphDatabaseType( String api, String backend, String shortname ) {
+    GraphDatabaseType( String api, String backend, String shortname, boolean checkpoints ) {
         this.api = api;
         this.backend = backend;
         this.shortname = shortname;
+        this.checkpoints = checkpoints;
     }
 
 
@@ -49,4 +52,13 @@ public enum GraphDatabaseType {
     public String getShortname() {
         return shortname;
     }
+
+
+    /**
+     * @return whether the massive insertion of the database implements the
+     * flush, saveState and restoreState hooks of checkpoints
+     */
+    public boolean supportsCheckpoints() {
+        return checkpoints;
+    }
 }
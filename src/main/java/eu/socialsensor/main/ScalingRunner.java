@@ -0,0 +1,116 @@
+package eu.socialsensor.main;
+
+
+import eu.socialsensor.dataset.Dataset;
+import eu.socialsensor.dataset.DatasetFactory;
+import eu.socialsensor.dataset.DatasetStatistics;
+import eu.socialsensor.dataset.SampledDataset;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+
+/**
+ * Runs the selected benchmarks on nested samples of the dataset and writes one
+ * scaling report per database, with the mean time of every benchmark at every
+ * sample size. Every sample runs with its own results and storage
+ * subdirectories, so the regular per-benchmark results stay available.
+ *
+ * @see SampledDataset
+ */
+public class ScalingRunner {
+
+    private static final Logger logger = LogManager.getLogger();
+    public static final String RESULTS_FILE_NAME_BASE = "Scaling";
+
+    private final BenchmarkConfiguration config;
+
+
+    public ScalingRunner( BenchmarkConfiguration config ) {
+        this.config = config;
+    }
+
+
+    public void run() {
+        final Dataset dataset = DatasetFactory.getInstance().getDataset( config.getDataset(), config.getDatasetMode() );
+        final List<ScalingPoint> points = new ArrayList<>();
+        for ( double fraction : config.getScalingFractions() ) {
+            final String label = "fraction-" + fraction;
+            final BenchmarkConfiguration sampleConfig;
+            if ( fraction == 1 ) {
+                sampleConfig = config.forSample( label, config.getDataset(), config.getActualCommunities(), config.getNodesCount() );
+            } else {
+                final SampledDataset sample = new SampledDataset( dataset, config.getSamplingMethod(), fraction, config.getSamplingSeed() );
+                sample.ensureSampled();
+                final File communities = config.getActualCommunities() == null ? null : sample.filterCommunities( config.getActualCommunities() );
+                final Integer nodesCount = communities == null ? config.getNodesCount() : Math.toIntExact( statisticsOf( sample.getEdgeFile() ).getNodeCount() );
+                sampleConfig = config.forSample( label, sample.getEdgeFile(), communities, nodesCount );
+            }
+
+            logger.info( "Running benchmarks on {} of {} ({})", fraction, config.getDataset().getName(), config.getSamplingMethod() );
+            final GraphDatabaseBenchmark benchmark = new GraphDatabaseBenchmark( sampleConfig );
+            benchmark.run();
+            benchmark.cleanup();
+            points.add( new ScalingPoint( fraction, statisticsOf( sampleConfig.getDataset() ), benchmark.getMeanTimes() ) );
+        }
+        writeReports( points );
+    }
+
+
+    private DatasetStatistics statisticsOf( File datasetFile ) {
+        return DatasetFactory.getInstance().getDataset( datasetFile, config.getDatasetMode() ).getStatistics();
+    }
+
+
+    private void writeReports( List<ScalingPoint> points ) {
+        final Set<BenchmarkType> types = EnumSet.noneOf( BenchmarkType.class );
+        for ( ScalingPoint point : points ) {
+            types.addAll( point.meanTimes.keySet() );
+        }
+
+        for ( GraphDatabaseType db : config.getSelectedDatabases() ) {
+            final File output = new File( config.getResultsPath(), RESULTS_FILE_NAME_BASE + "." + db.getShortname() + ".csv" );
+            logger.info( "Write scaling results to " + output );
+            try ( BufferedWriter out = new BufferedWriter( new FileWriter( output ) ) ) {
+                out.write( "Fraction,Nodes,Edges" );
+                for ( BenchmarkType type : types ) {
+                    out.write( String.format( ",%s Mean (s)", type.longname() ) );
+                }
+                out.write( "\n" );
+                for ( ScalingPoint point : points ) {
+                    out.write( String.format( "%f,%d,%d", point.fraction, point.statistics.getNodeCount(), point.statistics.getEdgeCount() ) );
+                    for ( BenchmarkType type : types ) {
+                        final Map<GraphDatabaseType, Double> means = point.meanTimes.get( type );
+                        out.write( means == null || !means.containsKey( db ) ? "," : String.format( ",%f", means.get( db ) ) );
+                    }
+                    out.write( "\n" );
+                }
+            } catch ( IOException e ) {
+                throw new BenchmarkingException( String.format( "Exception thrown when writing output to %s: %s", output, e.getMessage() ) );
+            }
+        }
+    }
+
+
+    private static final class ScalingPoint {
+
+        private final double fraction;
+        private final DatasetStatistics statistics;
+        private final Map<BenchmarkType, Map<GraphDatabaseType, Double>> meanTimes;
+
+
+        private ScalingPoint( double fraction, DatasetStatistics statistics, Map<BenchmarkType, Map<GraphDatabaseType, Double>> meanTimes ) {
+            this.fraction = fraction;
+            this.statistics = statistics;
+            this.meanTimes = meanTimes;
+        }
+    }
+}
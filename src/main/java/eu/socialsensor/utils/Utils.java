@@ -13,7 +13,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -78,22 +77,6 @@ public class Utils {
     }
 
 
-    public static final List<List<String>> parseTabulatedLines( List<String> lines, int numberOfLinesToSkip ) {
-        if ( numberOfLinesToSkip < 0 || numberOfLinesToSkip > lines.size() ) {
-            throw new IllegalArgumentException( "can skip at least zero and at most lines.size lines" );
-        }
-        List<List<String>> result = new LinkedList<>();
-
-        lines.subList( numberOfLinesToSkip, lines.size() ).parallelStream().forEachOrdered( line -> result.add( Arrays.asList( line.split( "\t" ) ) ) );
-        return result;
-    }
-
-
-    public static final List<List<String>> readTabulatedLines( File file, int numberOfLinesToSkip ) {
-        return parseTabulatedLines( readlines( file ), numberOfLinesToSkip );
-    }
-
-
     public static void deleteRecursively( File file ) {
         if ( !file.exists() ) {
             return;
@@ -157,7 +140,7 @@ public class Utils {
         final GraphDatabase<?, ?, ?, ?> graphDatabase;
         final File dbStorageDirectory = generateStorageDirectory( type, config.getDbStorageDirectory() );
         if ( GraphDatabaseType.NEO4J == type ) {
-            graphDatabase = new Neo4jGraphDatabase( dbStorageDirectory );
+            graphDatabase = new Neo4jGraphDatabase( config, dbStorageDirectory );
         } else if ( GraphDatabaseType.ORIENT_DB == type ) {
             graphDatabase = new OrientGraphDatabase( config, dbStorageDirectory );
         } else if ( GraphDatabaseType.SPARKSEE == type ) {
@@ -175,6 +158,7 @@ public class Utils {
         final GraphDatabase<?, ?, ?, ?> graphDatabase = createDatabaseInstance( config, type );
         graphDatabase.createGraphForMassiveLoad();
         graphDatabase.massiveModeLoading( config.getDataset() );
+        graphDatabase.buildMassiveIndexes();
         graphDatabase.shutdownMassiveGraph();
     }
 